@@ -0,0 +1,290 @@
+package freecell.bench;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.Moves;
+import freecell.solver.FreecellSolver;
+import freecell.solver.SolverResult;
+
+/**
+ * The class ControllerStress which replays a corpus of recorded games through {@link
+ * FreecellController#playGame}, with its output thrown away, and prints how many moves it plays
+ * per second and how long a command takes, to size the hosts of terminal sessions.
+ *
+ * <p>A recorded game is a Microsoft deal number, as dealt by {@link DealGenerator}, and the
+ * commands typed to play it, one per line in the {@code C1 7 O2} form the controller reads. The
+ * corpus is made of the solutions {@link FreecellSolver} finds for the first deals, with a badly
+ * typed card index before every eighth command and an invalid move after it, so that the retries
+ * of the controller and its error messages are paid for too. It can be saved to a directory, one
+ * file per deal named after its number, and loaded back.
+ *
+ * <p>Every command is timed from the moment the controller reads it to the moment it reads the
+ * next one, by giving the controller one command per read.
+ *
+ * <p>Usage: {@code java freecell.bench.ControllerStress [games] [rounds] [--save dir | --load
+ * dir] [--headless]}. The corpus (200 games by default) is replayed {@code rounds} times (5 by
+ * default) after one round of warm up, by headless controllers if asked.
+ */
+public final class ControllerStress {
+
+  private static final Appendable NULL_OUTPUT = new Appendable() {
+    @Override
+    public Appendable append(CharSequence csq) {
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      return this;
+    }
+  };
+
+  private ControllerStress() {
+  }
+
+  /**
+   * Run the stress mode.
+   *
+   * @param args the optional number of games, number of rounds and corpus directory
+   * @throws IOException if the corpus cannot be saved or loaded
+   */
+  public static void main(String[] args) throws IOException {
+    int games = args.length > 0 && !args[0].startsWith("--") ? Integer.parseInt(args[0]) : 200;
+    int rounds = args.length > 1 && !args[1].startsWith("--") ? Integer.parseInt(args[1]) : 5;
+    Path save = null;
+    Path load = null;
+    boolean headless = false;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("--save") && i + 1 < args.length) {
+        save = Paths.get(args[i + 1]);
+      } else if (args[i].equals("--load") && i + 1 < args.length) {
+        load = Paths.get(args[i + 1]);
+      } else if (args[i].equals("--headless")) {
+        headless = true;
+      }
+    }
+
+    List<Game> corpus = load != null ? load(load) : record(games);
+    if (save != null) {
+      save(corpus, save);
+    }
+    int commands = 0;
+    int moves = 0;
+    for (Game game : corpus) {
+      commands += game.commands.length;
+      moves += game.moves;
+    }
+
+    // Warm up so the first round is not dominated by the JIT.
+    replay(corpus, new long[commands], 0, headless);
+
+    long[] latencies = new long[commands * rounds];
+    long start = System.nanoTime();
+    for (int round = 0; round < rounds; round++) {
+      replay(corpus, latencies, round * commands, headless);
+    }
+    long elapsed = System.nanoTime() - start;
+    Arrays.sort(latencies);
+
+    System.out.printf("%8s %10s %10s %12s %12s %12s %12s%n", "games", "commands", "moves",
+            "time (ms)", "moves/s", "p50 (us)", "p99 (us)");
+    System.out.printf("%8d %10d %10d %12.1f %12.0f %12.2f %12.2f%n", corpus.size(),
+            commands * rounds, moves * rounds, elapsed / 1e6, moves * rounds / (elapsed / 1e9),
+            percentile(latencies, 50) / 1e3, percentile(latencies, 99) / 1e3);
+  }
+
+  /**
+   * Replay every game of the corpus, writing the time each command took from the given index on.
+   *
+   * @param corpus    the games
+   * @param latencies the array the times are written to
+   * @param offset    the index of the time of the first command
+   * @param headless  whether the controllers are headless
+   */
+  private static void replay(List<Game> corpus, long[] latencies, int offset,
+                             boolean headless) {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    DealGenerator generator = new DealGenerator();
+    for (Game game : corpus) {
+      TimedReadable input = new TimedReadable(game.commands);
+      new FreecellController(input, NULL_OUTPUT, headless).playGame(generator.deal(game.deal),
+              model, false);
+      for (int i = 0; i < game.commands.length; i++) {
+        latencies[offset++] = input.stamps[i + 1] - input.stamps[i];
+      }
+    }
+  }
+
+  /**
+   * Return a percentile of sorted times.
+   *
+   * @param sorted  the times, in increasing order
+   * @param percent the percentile
+   * @return the time.
+   */
+  private static long percentile(long[] sorted, int percent) {
+    return sorted[Math.min(sorted.length - 1, (int) ((long) sorted.length * percent / 100))];
+  }
+
+  /**
+   * Record the games of the first deals from the solutions found by the solver, leaving out the
+   * deals it cannot solve.
+   *
+   * @param games the number of deals
+   * @return the games.
+   */
+  private static List<Game> record(int games) {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    DealGenerator generator = new DealGenerator();
+    FreecellSolver solver = new FreecellSolver();
+    List<Game> corpus = new ArrayList<>();
+    for (int deal = 1; deal <= games; deal++) {
+      model.startGame(generator.deal(deal), false);
+      SolverResult result = solver.solve(model);
+      if (!result.isSolved()) {
+        continue;
+      }
+      List<String> commands = new ArrayList<>();
+      long[] moves = result.getMoves();
+      for (int i = 0; i < moves.length; i++) {
+        String command = Moves.toString(moves[i]);
+        if (i % 8 == 7) {
+          int space = command.indexOf(' ');
+          commands.add(command.substring(0, space) + " x" + command.substring(space) + "\n");
+          commands.add("C1 99 C2\n");
+        } else {
+          commands.add(command + "\n");
+        }
+      }
+      corpus.add(new Game(deal, commands.toArray(new String[0]), moves.length));
+    }
+    return corpus;
+  }
+
+  /**
+   * Save the games of the corpus to a directory, one file per game named after its deal.
+   *
+   * @param corpus    the games
+   * @param directory the directory
+   * @throws IOException if a file cannot be written
+   */
+  private static void save(List<Game> corpus, Path directory) throws IOException {
+    Files.createDirectories(directory);
+    for (Game game : corpus) {
+      Files.write(directory.resolve(game.deal + ".txt"),
+              String.join("", game.commands).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Load the games saved to a directory. A line is a valid move unless it has a badly typed
+   * token or its card index is 99.
+   *
+   * @param directory the directory
+   * @return the games, in the order of their deals.
+   * @throws IOException if a file cannot be read
+   */
+  private static List<Game> load(Path directory) throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> list = Files.list(directory)) {
+      list.filter(p -> p.getFileName().toString().endsWith(".txt")).forEach(files::add);
+    }
+    List<Game> corpus = new ArrayList<>();
+    for (Path file : files) {
+      String name = file.getFileName().toString();
+      long deal = Long.parseLong(name.substring(0, name.length() - ".txt".length()));
+      List<String> commands = new ArrayList<>();
+      int moves = 0;
+      for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+        commands.add(line + "\n");
+        moves += line.contains(" 99 ") ? 0 : 1;
+      }
+      corpus.add(new Game(deal, commands.toArray(new String[0]), moves));
+    }
+    corpus.sort((a, b) -> Long.compare(a.deal, b.deal));
+    return corpus;
+  }
+
+  /**
+   * A recorded game: its deal and the commands typed to play it.
+   */
+  private static final class Game {
+
+    private final long deal;
+    private final String[] commands;
+    private final int moves;
+
+    /**
+     * Instantiates a new game.
+     *
+     * @param deal     the deal number
+     * @param commands the commands, each ending with a new line
+     * @param moves    the number of valid moves among the commands
+     */
+    private Game(long deal, String[] commands, int moves) {
+      this.deal = deal;
+      this.commands = commands;
+      this.moves = moves;
+    }
+  }
+
+  /**
+   * The input which gives the controller one command per read, and notes the time of every read.
+   */
+  private static final class TimedReadable implements Readable {
+
+    private final String[] commands;
+    private final long[] stamps;
+    private int next;
+    private int position;
+
+    /**
+     * Instantiates a new input.
+     *
+     * @param commands the commands
+     */
+    private TimedReadable(String[] commands) {
+      this.commands = commands;
+      this.stamps = new long[commands.length + 1];
+    }
+
+    @Override
+    public int read(CharBuffer cb) {
+      if (position == 0 && next <= commands.length) {
+        stamps[next] = System.nanoTime();
+      }
+      if (next >= commands.length) {
+        next = commands.length + 1;
+        return -1;
+      }
+      String command = commands[next];
+      int length = Math.min(cb.remaining(), command.length() - position);
+      cb.append(command, position, position + length);
+      position += length;
+      if (position == command.length()) {
+        next++;
+        position = 0;
+      }
+      return length;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package freecell.bench;
+
+import java.util.List;
+
+import freecell.model.Card;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+
+/**
+ * The class DealStress which builds and deals boards with a growing number of cascade and open
+ * piles and prints how long each step takes, to check that building and dealing a model scales
+ * linearly with the size of its configuration.
+ *
+ * <p>Usage: {@code java freecell.bench.DealStress [maxPiles] [deals]}. The number of cascade and
+ * open piles is doubled from 8 up to {@code maxPiles} (4096 by default) and every configuration is
+ * dealt {@code deals} times (1000 by default) on one model.
+ */
+public final class DealStress {
+
+  private DealStress() {
+  }
+
+  /**
+   * Run the stress mode.
+   *
+   * @param args the optional maximum number of piles and number of deals per configuration
+   */
+  public static void main(String[] args) {
+    int maxPiles = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+    int deals = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+    // Warm up on the smallest configuration so the first row is not dominated by the JIT.
+    run(8, deals * 10);
+
+    System.out.printf("%8s %8s %14s %14s %14s%n", "cascades", "opens", "build (ns)", "deal (ns)",
+            "deal/pile (ns)");
+    for (int piles = 8; piles <= maxPiles; piles *= 2) {
+      long[] times = run(piles, deals);
+      System.out.printf("%8d %8d %14d %14d %14.2f%n", piles, piles, times[0], times[1],
+              (double) times[1] / piles);
+    }
+  }
+
+  /**
+   * Build a model with the given number of cascade and open piles and deal it repeatedly.
+   *
+   * @param piles the number of cascade and open piles
+   * @param deals the number of deals
+   * @return the time taken to build the model and the average time taken by a deal, in
+   *         nanoseconds.
+   */
+  private static long[] run(int piles, int deals) {
+    long start = System.nanoTime();
+    FreecellOperations<Card> model = FreecellMultiMoveModel.getBuilder().cascades(piles)
+            .opens(piles).build();
+    long built = System.nanoTime();
+    List<Card> deck = model.getDeck();
+    for (int i = 0; i < deals; i++) {
+      model.startGame(deck, false);
+    }
+    long dealt = System.nanoTime();
+    return new long[]{built - start, (dealt - built) / deals};
+  }
+}
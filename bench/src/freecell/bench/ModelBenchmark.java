@@ -0,0 +1,113 @@
+package freecell.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.PileType;
+
+/**
+ * The class ModelBenchmark which measures dealing a game and reading its state, on the default
+ * game of 8 cascade and 4 open piles dealt as Microsoft deal number 1.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+  private FreecellModel model;
+  private List<Card> deck;
+  private long seed;
+
+  /**
+   * Deal the game.
+   */
+  @Setup
+  public void setUp() {
+    model = (FreecellModel) FreecellMultiMoveModel.getBuilder().seed(1).<Card>build();
+    deck = new DealGenerator().deal(1);
+    model.startGame(deck, false);
+  }
+
+  /**
+   * Deal the deck as it is.
+   *
+   * @return the model.
+   */
+  @Benchmark
+  public FreecellModel startGame() {
+    model.startGame(deck, false);
+    return model;
+  }
+
+  /**
+   * Deal the deck shuffled by the generator of the model.
+   *
+   * @return the model.
+   */
+  @Benchmark
+  public FreecellModel startGameShuffled() {
+    model.startGame(deck, true);
+    return model;
+  }
+
+  /**
+   * Deal the deck shuffled from a new seed every time.
+   *
+   * @return the model.
+   */
+  @Benchmark
+  public FreecellModel startGameSeeded() {
+    model.startGame(deck, seed++);
+    return model;
+  }
+
+  /**
+   * Read the state of a game that has not changed since it was last read.
+   *
+   * @return the game state.
+   */
+  @Benchmark
+  public String getGameState() {
+    return model.getGameState();
+  }
+
+  /**
+   * Make a move and take it back, then read the state, so the piles it touched are written again.
+   *
+   * @return the game state.
+   */
+  @Benchmark
+  public String getGameStateAfterMove() {
+    model.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    model.undo();
+    return model.getGameState();
+  }
+
+  /**
+   * Check whether the game is over.
+   *
+   * @return whether the game is over.
+   */
+  @Benchmark
+  public boolean isGameOver() {
+    return model.isGameOver();
+  }
+}
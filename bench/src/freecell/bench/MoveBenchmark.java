@@ -0,0 +1,109 @@
+package freecell.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.PileType;
+import freecell.model.Suit;
+
+/**
+ * The class MoveBenchmark which measures {@link FreecellModel#move} for every pair of pile types
+ * the model allows, each followed by {@link FreecellModel#undo()} so the position and the journal
+ * stay the same from one call to the next.
+ *
+ * <p>The game has 52 cascade piles and is dealt in order, so that every card is alone on the
+ * cascade pile of its ordinal and the moves can be set up without searching for them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+
+  /**
+   * The source and destination pile types of the move.
+   */
+  @Param({"CASCADE_CASCADE", "CASCADE_OPEN", "CASCADE_FOUNDATION", "OPEN_CASCADE",
+      "OPEN_FOUNDATION", "OPEN_OPEN"})
+  public String pair;
+
+  private FreecellModel model;
+  private PileType sourceType;
+  private int sourcePile;
+  private PileType destinationType;
+  private int destinationPile;
+
+  /**
+   * Deal the game and set up the move.
+   */
+  @Setup
+  public void setUp() {
+    model = (FreecellModel) FreecellModel.getBuilder().cascades(Card.DECK_SIZE).<Card>build();
+    model.startGame(model.getDeck(), false);
+    int nineOfHearts = Card.of(Suit.HEART, 9).ordinal();
+    int tenOfSpades = Card.of(Suit.SPADE, 10).ordinal();
+    int aceOfClubs = Card.of(Suit.CLUB, 1).ordinal();
+    int aceOfDiamonds = Card.of(Suit.DIAMOND, 1).ordinal();
+    model.move(PileType.CASCADE, aceOfDiamonds, 0, PileType.OPEN, 1);
+    model.move(PileType.CASCADE, nineOfHearts, 0, PileType.OPEN, 2);
+
+    String[] types = pair.split("_");
+    sourceType = PileType.valueOf(types[0]);
+    destinationType = PileType.valueOf(types[1]);
+    switch (pair) {
+      case "CASCADE_CASCADE":
+        sourcePile = Card.of(Suit.DIAMOND, 9).ordinal();
+        destinationPile = Card.of(Suit.CLUB, 10).ordinal();
+        break;
+      case "CASCADE_OPEN":
+        sourcePile = tenOfSpades;
+        destinationPile = 0;
+        break;
+      case "CASCADE_FOUNDATION":
+        sourcePile = aceOfClubs;
+        destinationPile = 0;
+        break;
+      case "OPEN_CASCADE":
+        sourcePile = 2;
+        destinationPile = tenOfSpades;
+        break;
+      case "OPEN_FOUNDATION":
+        sourcePile = 1;
+        destinationPile = 1;
+        break;
+      case "OPEN_OPEN":
+        sourcePile = 2;
+        destinationPile = 3;
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown pile type pair " + pair);
+    }
+  }
+
+  /**
+   * Make the move and take it back.
+   *
+   * @return the model.
+   */
+  @Benchmark
+  public FreecellModel moveAndUndo() {
+    model.move(sourceType, sourcePile, 0, destinationType, destinationPile);
+    model.undo();
+    return model;
+  }
+}
@@ -0,0 +1,80 @@
+package freecell.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.PileType;
+import freecell.model.Suit;
+
+/**
+ * The class MultiMoveBenchmark which measures moving a build of a given length from one cascade
+ * pile to another in {@link FreecellMultiMoveModel}, followed by {@link FreecellModel#undo()} so
+ * the position and the journal stay the same from one call to the next.
+ *
+ * <p>The game has 52 cascade piles and is dealt in order, so that every card is alone on the
+ * cascade pile of its ordinal. The build, from the queen of hearts down in alternating colors, is
+ * stacked on the king of spades and moved onto the king of clubs, with enough empty cascade piles
+ * left to move it in one go.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiMoveBenchmark {
+
+  /**
+   * The number of cards of the build.
+   */
+  @Param({"1", "2", "4", "8", "12"})
+  public int length;
+
+  private FreecellModel model;
+  private int source;
+  private int destination;
+
+  /**
+   * Deal the game and stack the build.
+   */
+  @Setup
+  public void setUp() {
+    model = (FreecellModel) FreecellMultiMoveModel.getBuilder().cascades(Card.DECK_SIZE)
+            .<Card>build();
+    model.startGame(model.getDeck(), false);
+    source = Card.of(Suit.SPADE, 13).ordinal();
+    destination = Card.of(Suit.CLUB, 13).ordinal();
+    for (int i = 1; i <= length; i++) {
+      int number = 13 - i;
+      Suit suit = i % 2 == 1 ? (number % 2 == 0 ? Suit.HEART : Suit.DIAMOND)
+              : (number % 2 == 0 ? Suit.SPADE : Suit.CLUB);
+      model.move(PileType.CASCADE, Card.of(suit, number).ordinal(), 0, PileType.CASCADE, source);
+    }
+  }
+
+  /**
+   * Move the build and take it back.
+   *
+   * @return the model.
+   */
+  @Benchmark
+  public FreecellModel moveCascadeToCascade() {
+    model.move(PileType.CASCADE, source, 1, PileType.CASCADE, destination);
+    model.undo();
+    return model;
+  }
+}
@@ -0,0 +1,90 @@
+package freecell.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.solver.FreecellSolver;
+import freecell.solver.ParallelFreecellSolver;
+import freecell.solver.SolverResult;
+
+/**
+ * The class SolverStress which solves the same deals of the default game with a growing number of
+ * workers and prints how long it takes and how many positions are expanded per second, to check
+ * how the parallel solver scales with the number of cores.
+ *
+ * <p>Usage: {@code java freecell.bench.SolverStress [deals] [maxThreads] [seed]}. The deals (20
+ * by default) are shuffled from the given seed (1 by default) and solved by {@link
+ * ParallelFreecellSolver} with 1, 2, 4 and so on up to {@code maxThreads} workers (the number of
+ * available processors by default).
+ */
+public final class SolverStress {
+
+  private SolverStress() {
+  }
+
+  /**
+   * Run the stress mode.
+   *
+   * @param args the optional number of deals, maximum number of workers and seed
+   */
+  public static void main(String[] args) {
+    int deals = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+            : Runtime.getRuntime().availableProcessors();
+    long seed = args.length > 2 ? Long.parseLong(args[2]) : 1L;
+
+    List<FreecellModel> games = new ArrayList<>();
+    Random random = new Random(seed);
+    for (int i = 0; i < deals; i++) {
+      FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+      List<Card> deck = new ArrayList<>(model.getDeck());
+      Collections.shuffle(deck, random);
+      model.startGame(deck, false);
+      games.add(model);
+    }
+
+    // Warm up so the first row is not dominated by the JIT.
+    run(games.subList(0, Math.min(deals, 3)), 1);
+
+    System.out.printf("%8s %8s %12s %14s %10s%n", "threads", "solved", "time (ms)", "nodes/s",
+            "speedup");
+    double base = 0;
+    for (int threads = 1; threads <= maxThreads; threads *= 2) {
+      long[] totals = run(games, threads);
+      double millis = totals[1] / 1e6;
+      if (threads == 1) {
+        base = millis;
+      }
+      System.out.printf("%8d %8d %12.1f %14.0f %10.2f%n", threads, totals[0], millis,
+              totals[2] / (totals[1] / 1e9), base / millis);
+    }
+  }
+
+  /**
+   * Solve every game with the given number of workers.
+   *
+   * @param games   the dealt games
+   * @param threads the number of workers
+   * @return the number of games solved, the time taken in nanoseconds and the number of positions
+   *         expanded.
+   */
+  private static long[] run(List<FreecellModel> games, int threads) {
+    long solved = 0;
+    long nodes = 0;
+    long start = System.nanoTime();
+    try (ParallelFreecellSolver solver = new ParallelFreecellSolver(threads,
+            FreecellSolver.DEFAULT_MAX_NODES, FreecellSolver.DEFAULT_MAX_DEPTH,
+            FreecellSolver.DEFAULT_WEIGHT)) {
+      for (FreecellModel game : games) {
+        SolverResult result = solver.solve(game);
+        solved += result.isSolved() ? 1 : 0;
+        nodes += result.getNodes();
+      }
+    }
+    return new long[]{solved, System.nanoTime() - start, nodes};
+  }
+}
@@ -0,0 +1,245 @@
+package freecell.controller;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * The class CommandTokenizer which splits the input of the controller into tokens separated by
+ * whitespace, as {@link java.util.Scanner} does with its default delimiter, without regular
+ * expressions and without building a String per token.
+ *
+ * <p>The input is read into a single char array, which only grows if a token does not fit in it,
+ * and the tokenizer is itself the current token as a {@link CharSequence}. The current token is
+ * valid until the next call to {@link #hasNext()} or {@link #next()}, which may overwrite it. As
+ * with a Scanner, an {@link IOException} thrown by the input ends it.
+ *
+ * <p>A task may be given to run every time before the input is read, which is when the tokens
+ * read so far are used up and reading may block for the next ones.
+ */
+final class CommandTokenizer implements CharSequence {
+
+  private static final int BUFFER_SIZE = 1024;
+  private static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+  private final Readable in;
+  private final Runnable beforeRead;
+  private char[] chars;
+  private CharBuffer buffer;
+  private int position;
+  private int limit;
+  private int nextEnd;
+  private boolean eof;
+  private int tokenStart;
+  private int tokenEnd;
+
+  /**
+   * Instantiates a new tokenizer.
+   *
+   * @param in the input
+   */
+  CommandTokenizer(Readable in) {
+    this(in, () -> { });
+  }
+
+  /**
+   * Instantiates a new tokenizer which runs a task before every read of the input.
+   *
+   * @param in         the input
+   * @param beforeRead the task
+   */
+  CommandTokenizer(Readable in, Runnable beforeRead) {
+    this.in = in;
+    this.beforeRead = beforeRead;
+    this.chars = new char[BUFFER_SIZE];
+    this.buffer = CharBuffer.wrap(chars);
+  }
+
+  /**
+   * Return whether there is another token, reading the input until the whole of it is read.
+   *
+   * @return true if there is another token, false at the end of the input.
+   */
+  boolean hasNext() {
+    while (true) {
+      while (position < limit && Character.isWhitespace(chars[position])) {
+        position++;
+      }
+      if (position < limit) {
+        break;
+      }
+      if (eof) {
+        return false;
+      }
+      fill();
+    }
+    int end = position;
+    while (true) {
+      while (end < limit && !Character.isWhitespace(chars[end])) {
+        end++;
+      }
+      if (end < limit || eof) {
+        break;
+      }
+      int length = end - position;
+      fill();
+      end = position + length;
+    }
+    nextEnd = end;
+    return true;
+  }
+
+  /**
+   * Move to the next token.
+   *
+   * @throws NoSuchElementException if there is no other token
+   */
+  void next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    tokenStart = position;
+    tokenEnd = nextEnd;
+    position = nextEnd;
+  }
+
+  /**
+   * Move the unread input to the start of the array, growing it if it is full, and read more.
+   */
+  private void fill() {
+    System.arraycopy(chars, position, chars, 0, limit - position);
+    limit -= position;
+    position = 0;
+    if (limit == chars.length) {
+      char[] larger = new char[chars.length * 2];
+      System.arraycopy(chars, 0, larger, 0, limit);
+      chars = larger;
+      buffer = CharBuffer.wrap(chars);
+    }
+    buffer.limit(chars.length).position(limit);
+    beforeRead.run();
+    try {
+      int n = in.read(buffer);
+      if (n < 0) {
+        eof = true;
+      } else {
+        limit += n;
+      }
+    } catch (IOException e) {
+      eof = true;
+    }
+  }
+
+  /**
+   * Return whether the current token holds a q, in either case, anywhere.
+   *
+   * @return true if the token holds a q, false otherwise.
+   */
+  boolean containsQuit() {
+    for (int i = tokenStart; i < tokenEnd; i++) {
+      if (chars[i] == 'q' || chars[i] == 'Q') {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int length() {
+    return tokenEnd - tokenStart;
+  }
+
+  @Override
+  public char charAt(int index) {
+    if (index < 0 || index >= tokenEnd - tokenStart) {
+      throw new IndexOutOfBoundsException("Invalid token index");
+    }
+    return chars[tokenStart + index];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().substring(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return new String(chars, tokenStart, tokenEnd - tokenStart);
+  }
+
+  /**
+   * Return whether some characters are only the letter q, in either case, or a bar, and at least
+   * one of them.
+   *
+   * @param s    the characters
+   * @param from the index of the first character
+   * @return true if the characters ask to quit, false otherwise.
+   */
+  static boolean isQuit(CharSequence s, int from) {
+    if (from >= s.length()) {
+      return false;
+    }
+    for (int i = from; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c != 'q' && c != 'Q' && c != '|') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parse some characters as a decimal integer the way {@link Integer#parseInt(String)} does,
+   * but without throwing.
+   *
+   * @param s    the characters
+   * @param from the index of the first character
+   * @return the integer, or {@link Long#MIN_VALUE} if the characters are not one.
+   */
+  static long parseInt(CharSequence s, int from) {
+    int length = s.length();
+    if (from >= length) {
+      return NOT_A_NUMBER;
+    }
+    boolean negative = false;
+    int limit = -Integer.MAX_VALUE;
+    int i = from;
+    char first = s.charAt(i);
+    if (first < '0') {
+      if (first == '-') {
+        negative = true;
+        limit = Integer.MIN_VALUE;
+      } else if (first != '+') {
+        return NOT_A_NUMBER;
+      }
+      if (length - from == 1) {
+        return NOT_A_NUMBER;
+      }
+      i++;
+    }
+    int multiplyMin = limit / 10;
+    int result = 0;
+    while (i < length) {
+      int digit = Character.digit(s.charAt(i++), 10);
+      if (digit < 0 || result < multiplyMin) {
+        return NOT_A_NUMBER;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return NOT_A_NUMBER;
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Return whether a value returned by {@link #parseInt(CharSequence, int)} is an integer.
+   *
+   * @param value the value
+   * @return true if the value is an integer, false otherwise.
+   */
+  static boolean isNumber(long value) {
+    return value != NOT_A_NUMBER;
+  }
+}
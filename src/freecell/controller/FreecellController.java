@@ -1,22 +1,38 @@
 package freecell.controller;
 
-import java.io.IOException;
-
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 
 import freecell.model.FreecellOperations;
 import freecell.model.PileType;
 
 /**
- * The type Freecell controller.
+ * The type Freecell controller. Its input is split into tokens by a {@link CommandTokenizer},
+ * which reads commands without regular expressions nor a String per token.
+ *
+ * <p>A headless controller, used to replay games in batch for verification, grading or analytics,
+ * writes nothing for each move. Once the input ends or the game is quit it writes the final state
+ * of the game, whether the game is over, and how many moves were played and how many were invalid,
+ * per reason.
+ *
+ * <p>The output is staged in an {@link OutputBuffer} and written in one call when the commands
+ * read so far are played, before the input is read again, and when the game ends, so a batch of
+ * commands sent at once costs one write. A controller may also flush after a given number of
+ * moves, and drop the intermediate states of a run of valid moves staged before a flush, so that
+ * only the last one is written.
  */
 public class FreecellController implements IFreecellController {
 
 
   private Readable rd;
-  private Appendable ap;
+  private final OutputBuffer ap;
   private boolean quit;
+  private final boolean headless;
+  private final int flushInterval;
+  private int validMoves;
+  private int invalidMoves;
+  private final Map<String, Integer> invalidReasons;
 
   /**
    * Instantiates a new Freecell controller.
@@ -27,11 +43,65 @@ public class FreecellController implements IFreecellController {
    *                                  object are null.
    */
   public FreecellController(Readable rd, Appendable ap) throws IllegalArgumentException {
+    this(rd, ap, false);
+  }
+
+  /**
+   * Instantiates a new Freecell controller, which may be headless.
+   *
+   * @param rd       the readable interface object, used to take the input.
+   * @param ap       the appendable interface object, used to display the output.
+   * @param headless true to write only the final state of the game and a summary of the moves.
+   * @throws IllegalArgumentException the illegal argument exception if readable and/ or appendable
+   *                                  object are null.
+   */
+  public FreecellController(Readable rd, Appendable ap, boolean headless)
+          throws IllegalArgumentException {
+    this(rd, ap, headless, 0, false);
+  }
+
+  /**
+   * Instantiates a new Freecell controller which flushes its output after a number of moves and
+   * may drop intermediate states.
+   *
+   * @param rd            the readable interface object, used to take the input.
+   * @param ap            the appendable interface object, used to display the output.
+   * @param flushInterval the number of moves after which the output is flushed even if more
+   *                      commands are read, or 0 to flush only before reading the input again.
+   * @param dropStates    true to write only the last state of a run of valid moves played
+   *                      between two flushes.
+   * @throws IllegalArgumentException the illegal argument exception if readable and/ or appendable
+   *                                  object are null or the interval is negative.
+   */
+  public FreecellController(Readable rd, Appendable ap, int flushInterval, boolean dropStates)
+          throws IllegalArgumentException {
+    this(rd, ap, false, flushInterval, dropStates);
+  }
+
+  /**
+   * Instantiates a new Freecell controller with every option.
+   *
+   * @param rd            the readable interface object, used to take the input.
+   * @param ap            the appendable interface object, used to display the output.
+   * @param headless      true to write only the final state of the game and a summary.
+   * @param flushInterval the number of moves after which the output is flushed, or 0.
+   * @param dropStates    true to drop intermediate states.
+   * @throws IllegalArgumentException if readable and/ or appendable object are null or the
+   *                                  interval is negative.
+   */
+  private FreecellController(Readable rd, Appendable ap, boolean headless, int flushInterval,
+                             boolean dropStates) throws IllegalArgumentException {
     if (rd == null || ap == null) {
       throw new IllegalArgumentException("rd or ap cannot be null");
     }
+    if (flushInterval < 0) {
+      throw new IllegalArgumentException("Flush interval cannot be negative");
+    }
     this.rd = rd;
-    this.ap = ap;
+    this.ap = new OutputBuffer(ap, dropStates);
+    this.headless = headless;
+    this.flushInterval = flushInterval;
+    this.invalidReasons = new LinkedHashMap<>();
     quit = false;
   }
 
@@ -48,146 +118,175 @@ public class FreecellController implements IFreecellController {
 
     try {
       model.startGame(deck, shuffle);
-      this.ap.append("\n").append(model.getGameState());
+      if (!headless) {
+        this.ap.appendState(model.getGameState());
+      }
     } catch (Exception e) {
       throw new IllegalArgumentException("Start game failed");
     }
+    validMoves = 0;
+    invalidMoves = 0;
+    invalidReasons.clear();
+
+    try {
+      readCommands(model);
+      if (headless) {
+        writeSummary(model);
+      }
+    } finally {
+      this.ap.flush();
+    }
+  }
 
+  /**
+   * Private method to read the commands and make the moves they give until the input ends or the
+   * game is quit.
+   *
+   * @param model the model, whose game has started.
+   */
+  private void readCommands(FreecellOperations<?> model) {
     PileType sourcePileType = null;
     PileType destPileType;
     int sourcePileNumber = Integer.MAX_VALUE;
     int destPileNumber;
     int cardIndex = Integer.MAX_VALUE;
 
-    Scanner sc = new Scanner(this.rd);
+    CommandTokenizer tokens = new CommandTokenizer(this.rd, this.ap::flush);
+    StringBuilder rest = new StringBuilder();
     int count = 0;
-    while (sc.hasNext()) {
-      String newString = sc.next();
+    while (tokens.hasNext()) {
+      tokens.next();
 
-      if (newString.toUpperCase().contains("Q")) {
-        try {
-          this.ap = this.ap.append("\nGame quit prematurely.");
-          return;
-        } catch (IOException e) {
-          throw new IllegalStateException("Not valid state");
-        }
+      if (tokens.containsQuit()) {
+        this.ap.append("\nGame quit prematurely.");
+        return;
       }
 
       if (count == 0) {
-        char pileType = newString.charAt(0);
-        sourcePileType = getPileType(Character.toUpperCase(pileType), sc);
+        char pileType = tokens.charAt(0);
+        rest.setLength(0);
+        rest.append(tokens, 1, tokens.length());
+        sourcePileType = getPileType(Character.toUpperCase(pileType), tokens);
         if (sourcePileType == null) {
           return;
         }
-        sourcePileNumber = getPileNumber(newString.substring(1), sc);
+        sourcePileNumber = getPileNumber(rest, tokens);
         if (quit) {
-          try {
-            this.ap.append("\nGame quit prematurely.");
-            break;
-          } catch (IOException ioe) {
-            ioe.printStackTrace();
-          }
+          this.ap.append("\nGame quit prematurely.");
+          break;
         }
         count += 1;
       } else if (count == 1) {
-        cardIndex = getPileNumber(newString, sc);
+        cardIndex = getPileNumber(tokens, tokens);
         if (quit) {
-          try {
-            this.ap.append("\nGame quit prematurely.");
-            break;
-          } catch (IOException ioe) {
-            ioe.printStackTrace();
-          }
+          this.ap.append("\nGame quit prematurely.");
+          break;
         }
         count += 1;
       } else {
-        destPileType = getPileType(newString.charAt(0), sc);
+        rest.setLength(0);
+        rest.append(tokens, 1, tokens.length());
+        destPileType = getPileType(tokens.charAt(0), tokens);
         if (destPileType == null) {
-          try {
-            this.ap.append("\nGame quit prematurely.");
-            break;
-          } catch (IOException ioe) {
-            ioe.printStackTrace();
-          }
+          this.ap.append("\nGame quit prematurely.");
+          break;
         }
-        destPileNumber = getPileNumber(newString.substring(1), sc);
+        destPileNumber = getPileNumber(rest, tokens);
         if (quit) {
-          try {
-            this.ap.append("\nGame quit prematurely.");
-            break;
-          } catch (IOException ioe) {
-            ioe.printStackTrace();
-          }
+          this.ap.append("\nGame quit prematurely.");
+          break;
         }
         count = 0;
         try {
           model.move(sourcePileType, sourcePileNumber - 1, cardIndex - 1,
                   destPileType, destPileNumber - 1);
-          try {
-            this.ap.append("\n").append(model.getGameState());
-          } catch (IOException ioe) {
-            ioe.printStackTrace();
-          }
-          if (model.isGameOver()) {
-            try {
+          validMoves++;
+          if (!headless) {
+            this.ap.appendState(model.getGameState());
+            if (model.isGameOver()) {
               this.ap.append(model.getGameState()).append("\nGame over.");
-            } catch (IOException ioe) {
-              ioe.printStackTrace();
             }
           }
         } catch (IllegalArgumentException | IllegalStateException iae) {
-          try {
-            this.ap.append("\n").append("Invalid move. Try again. ").append(iae.getMessage());
-          } catch (IOException ioe) {
-            ioe.printStackTrace();
+          invalidMoves++;
+          if (headless) {
+            invalidReasons.merge(String.valueOf(iae.getMessage()), 1, Integer::sum);
+          } else {
+            this.ap.append("\n").append("Invalid move. Try again. ")
+                    .append(String.valueOf(iae.getMessage()));
           }
         }
+        if (flushInterval > 0 && (validMoves + invalidMoves) % flushInterval == 0) {
+          this.ap.flush();
+        }
       }
     }
   }
 
   /**
-   * Private method to get the source, destination pile number and card index.
+   * Private method to write the final state of a headless game, whether it is over, and the
+   * number of valid and invalid moves, with the number of invalid moves for each reason.
    *
-   * @param s is the string.
-   * @return the number.
+   * @param model the model.
    */
-  private int getPileNumber(String s, Scanner sc) {
-    if (s.matches("\\s*[Q|q]+\\s*")) {
-      quit = true;
-      return -5000;
+  private void writeSummary(FreecellOperations<?> model) {
+    this.ap.appendState(model.getGameState());
+    if (model.isGameOver()) {
+      this.ap.append("\nGame over.");
     }
-    try {
-      return Integer.parseInt(s);
-    } catch (NumberFormatException nfe) {
-      return getPileNumber(sc.next(), sc);
+    this.ap.append("\nValid moves: ").append(String.valueOf(validMoves))
+            .append(", invalid moves: ").append(String.valueOf(invalidMoves));
+    for (Map.Entry<String, Integer> reason : invalidReasons.entrySet()) {
+      this.ap.append("\n  ").append(reason.getKey()).append(": ")
+              .append(String.valueOf(reason.getValue()));
+    }
+  }
+
+  /**
+   * Private method to get the source, destination pile number and card index. If the characters
+   * are not a number the next tokens are tried until one is.
+   *
+   * @param s      is the characters.
+   * @param tokens is the tokenizer of the input.
+   * @return the number.
+   */
+  private int getPileNumber(CharSequence s, CommandTokenizer tokens) {
+    while (true) {
+      if (CommandTokenizer.isQuit(s, 0)) {
+        quit = true;
+        return -5000;
+      }
+      long number = CommandTokenizer.parseInt(s, 0);
+      if (CommandTokenizer.isNumber(number)) {
+        return (int) number;
+      }
+      tokens.next();
+      s = tokens;
     }
   }
 
   /**
-   * Private method which returns the pile type depending on the parameter passed.
+   * Private method which returns the pile type depending on the parameter passed. If the
+   * character is not a pile type the first character of the next tokens are tried until one is.
    *
    * @param pileType is the pile type passed by user.
+   * @param tokens   is the tokenizer of the input.
    * @return the pile type.
    */
-  private PileType getPileType(char pileType, Scanner sc) {
-    if (pileType == 'O') {
-      return PileType.OPEN;
-    } else if (pileType == 'C') {
-      return PileType.CASCADE;
-    } else if (pileType == 'F') {
-      return PileType.FOUNDATION;
-    } else {
-      if (Character.toUpperCase(pileType) == 'Q') {
-        try {
-          this.ap.append("\nGame quit prematurely.");
-        } catch (IOException e) {
-          throw new IllegalStateException("Not valid state");
-        }
-      } else {
-        return getPileType(sc.next().charAt(0), sc);
+  private PileType getPileType(char pileType, CommandTokenizer tokens) {
+    while (true) {
+      if (pileType == 'O') {
+        return PileType.OPEN;
+      } else if (pileType == 'C') {
+        return PileType.CASCADE;
+      } else if (pileType == 'F') {
+        return PileType.FOUNDATION;
+      } else if (Character.toUpperCase(pileType) == 'Q') {
+        this.ap.append("\nGame quit prematurely.");
+        return null;
       }
+      tokens.next();
+      pileType = tokens.charAt(0);
     }
-    return null;
   }
 }
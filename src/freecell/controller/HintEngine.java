@@ -0,0 +1,222 @@
+package freecell.controller;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import freecell.model.FreecellModel;
+import freecell.model.Moves;
+import freecell.solver.FreecellSolver;
+import freecell.solver.SolverResult;
+import freecell.solver.SolverStatus;
+
+/**
+ * The class HintEngine which recommends the next move to play from the present position of a
+ * game, by searching for a solution with a {@link FreecellSolver} for a limited time.
+ *
+ * <p>The hint found for every position is cached by the hash of the position, {@link
+ * FreecellModel#getHash()}, in a least recently used cache of bounded size, so asking again in a
+ * position already seen, by the same player or another one, takes no search. Only hints proven by
+ * their search are cached: the first move of a solution, or no move at all for a game that cannot
+ * be won. A search stopped by the time limit still recommends the first move of its best line,
+ * but the position is searched again the next time. The number of hints answered from the cache
+ * and the number searched are counted.
+ *
+ * <p>Models of different rules, a {@link FreecellModel} and a {@link
+ * freecell.model.FreecellMultiMoveModel} or models of different numbers of piles, give the same
+ * hash to positions where different moves are legal, so an engine serves models of a single rule
+ * set: the class and numbers of cascade and open piles of the first model it is given, until it
+ * is cleared.
+ *
+ * <p>The engine also keeps the line found by its last search, with the hash of every position
+ * along it. When a player plays the move recommended, by {@link
+ * freecell.model.FreecellOperations#move} or otherwise, and asks again, the position reached is
+ * the next one of the line and the next move of the line is recommended without searching. A
+ * player leaving the line gets a new search. Only the line of a solution is kept.
+ *
+ * <p>An engine is thread safe, answering one hint at a time.
+ */
+public class HintEngine {
+
+  /**
+   * Default number of positions cached.
+   */
+  public static final int DEFAULT_CAPACITY = 4096;
+
+  /**
+   * Default time a search for a hint may take.
+   */
+  public static final Duration DEFAULT_TIME_LIMIT = Duration.ofMillis(100);
+
+  private final FreecellSolver solver;
+  private final Duration timeLimit;
+  private final Map<Long, Long> cache;
+  private Class<?> rules;
+  private int cascades;
+  private int opens;
+  private long[] line;
+  private long[] lineHashes;
+  private int next;
+  private long hits;
+  private long reuses;
+  private long misses;
+
+  /**
+   * Instantiates a new engine with the default capacity and time limit.
+   */
+  public HintEngine() {
+    this(DEFAULT_CAPACITY, DEFAULT_TIME_LIMIT);
+  }
+
+  /**
+   * Instantiates a new engine.
+   *
+   * @param capacity  the number of positions cached
+   * @param timeLimit the time a search for a hint may take
+   * @throws IllegalArgumentException if the capacity is not positive or the time limit is null or
+   *                                  negative
+   */
+  public HintEngine(int capacity, Duration timeLimit) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Cache capacity must be positive");
+    }
+    if (timeLimit == null || timeLimit.isNegative()) {
+      throw new IllegalArgumentException("Time limit cannot be null or negative");
+    }
+    this.solver = new FreecellSolver();
+    this.timeLimit = timeLimit;
+    this.line = new long[0];
+    this.lineHashes = new long[0];
+    this.cache = new LinkedHashMap<Long, Long>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+        return size() > capacity;
+      }
+    };
+  }
+
+  /**
+   * Return the move recommended from the present position of a game. It is the first move of a
+   * solution when one is found in time, and otherwise of the line that gets the most cards to the
+   * foundation piles. The model is left in the position it was given in, but the moves it could
+   * redo are forgotten.
+   *
+   * @param model the model, whose game has started
+   * @return the move, packed as described in {@link Moves}, or {@link Moves#NONE} if there is
+   *         nothing to recommend.
+   * @throws IllegalArgumentException if the model is null or of other rules than the models the
+   *                                  engine serves
+   * @throws IllegalStateException    if the game has not started
+   */
+  public synchronized long hint(FreecellModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    if (rules == null) {
+      rules = model.getClass();
+      cascades = model.getNoOfCascadePiles();
+      opens = model.getNoOfOpenPiles();
+    } else if (model.getClass() != rules || model.getNoOfCascadePiles() != cascades
+            || model.getNoOfOpenPiles() != opens) {
+      throw new IllegalArgumentException("Model of other rules than the engine serves");
+    }
+    if (model.isGameOver()) {
+      return Moves.NONE;
+    }
+    long hash = model.getHash();
+    Long cached = cache.get(hash);
+    if (cached != null) {
+      hits++;
+      return cached;
+    }
+    if (next + 1 < line.length && lineHashes[next + 1] == hash) {
+      reuses++;
+      next++;
+      cache.put(hash, line[next]);
+      return line[next];
+    }
+    misses++;
+    SolverResult result = solver.solve(model, timeLimit, null);
+    long[] moves = result.getMoves();
+    long move = moves.length > 0 ? moves[0] : Moves.NONE;
+    if (result.isSolved()) {
+      keepLine(model, moves);
+    }
+    if (result.isSolved() || result.getStatus() == SolverStatus.UNSOLVABLE) {
+      cache.put(hash, move);
+    }
+    return move;
+  }
+
+  /**
+   * Keep the line found by a search, with the hash of the position before each of its moves,
+   * found by playing the line on the model and taking it back.
+   *
+   * @param model the model, in the position searched
+   * @param moves the moves of the line
+   */
+  private void keepLine(FreecellModel model, long[] moves) {
+    line = moves;
+    lineHashes = new long[moves.length];
+    next = 0;
+    for (int i = 0; i < moves.length; i++) {
+      lineHashes[i] = model.getHash();
+      model.tryMove(moves[i]);
+    }
+    for (int i = 0; i < moves.length; i++) {
+      model.undo();
+    }
+  }
+
+  /**
+   * Return the number of hints answered from the cache.
+   *
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Return the number of hints answered from the line of the last search, after the player
+   * followed the previous hint.
+   *
+   * @return the number of hints reused.
+   */
+  public synchronized long getReuses() {
+    return reuses;
+  }
+
+  /**
+   * Return the number of hints that had to be searched.
+   *
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Return the number of positions cached.
+   *
+   * @return the number of positions.
+   */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  /**
+   * Forget every cached position, the line of the last search and the rules of the models served,
+   * and reset the counters.
+   */
+  public synchronized void clear() {
+    cache.clear();
+    rules = null;
+    line = new long[0];
+    lineHashes = new long[0];
+    next = 0;
+    hits = 0;
+    reuses = 0;
+    misses = 0;
+  }
+}
@@ -0,0 +1,90 @@
+package freecell.controller;
+
+import java.io.IOException;
+
+/**
+ * The class OutputBuffer which stages the output of the controller and writes it to its
+ * destination in one call when flushed, so that a batch of commands costs one write instead of
+ * several per command. The characters are held in a single builder, which keeps its capacity
+ * from one flush to the next.
+ *
+ * <p>The states of the game are staged by {@link #appendState(CharSequence)}. A buffer that drops
+ * intermediate states replaces the last state staged by the new one when nothing was staged after
+ * it, so that when commands come in faster than they are flushed only the last state of a run of
+ * valid moves is written. Messages, such as the reason a move is invalid, are never dropped.
+ */
+final class OutputBuffer implements Appendable {
+
+  private final Appendable destination;
+  private final boolean dropStates;
+  private final StringBuilder staged;
+  private int stateStart;
+  private int stateEnd;
+
+  /**
+   * Instantiates a new buffer.
+   *
+   * @param destination the output the buffer is flushed to
+   * @param dropStates  true to drop a state when it is followed by another one before a flush
+   */
+  OutputBuffer(Appendable destination, boolean dropStates) {
+    this.destination = destination;
+    this.dropStates = dropStates;
+    this.staged = new StringBuilder();
+    this.stateStart = -1;
+    this.stateEnd = -1;
+  }
+
+  @Override
+  public OutputBuffer append(CharSequence csq) {
+    staged.append(csq);
+    return this;
+  }
+
+  @Override
+  public OutputBuffer append(CharSequence csq, int start, int end) {
+    staged.append(csq, start, end);
+    return this;
+  }
+
+  @Override
+  public OutputBuffer append(char c) {
+    staged.append(c);
+    return this;
+  }
+
+  /**
+   * Stage a state of the game on a line of its own, dropping the last state staged if it is
+   * the last thing staged and intermediate states are dropped.
+   *
+   * @param state the state
+   */
+  void appendState(CharSequence state) {
+    if (dropStates && stateStart >= 0 && stateEnd == staged.length()) {
+      staged.setLength(stateStart);
+    }
+    stateStart = staged.length();
+    staged.append('\n').append(state);
+    stateEnd = staged.length();
+  }
+
+  /**
+   * Write what is staged to the destination, if anything, and empty the buffer. If the
+   * destination fails, its stack trace is printed and what was staged is dropped, as the
+   * controller did for every write that failed, so that the game goes on.
+   */
+  void flush() {
+    if (staged.length() == 0) {
+      return;
+    }
+    try {
+      destination.append(staged);
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      staged.setLength(0);
+      stateStart = -1;
+      stateEnd = -1;
+    }
+  }
+}
@@ -1,16 +1,61 @@
 package freecell.model;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
 /**
  * The class Card which consists of private variable suit and number. It also includes methods to
  * get the suit, get the number and a toString method which returns the string and the number.
+ *
+ * <p>Every valid card has an ordinal between 0 and 51, equal to the ordinal of its suit times 13
+ * plus its number minus one. The 52 valid cards are interned: {@link #of(Suit, int)} and {@link
+ * #valueOf(int)} always return the same shared instance, and the rank, suit, color and label of
+ * an ordinal are read from precomputed tables.
  */
 public final class Card {
 
+  /**
+   * Number of cards in a deck.
+   */
+  public static final int DECK_SIZE = 52;
+
+  /**
+   * Number of cards of each suit.
+   */
+  public static final int CARDS_PER_SUIT = 13;
+
+  private static final Suit[] SUITS = Suit.values();
+  private static final String[] SYMBOLS = {"\u2663", "\u2666", "\u2665", "\u2660"};
+  private static final String[] NUMBERS = {"A", "2", "3", "4", "5", "6", "7", "8", "9", "10",
+      "J", "Q", "K"};
+
+  private static final byte[] NUMBER_OF = new byte[DECK_SIZE];
+  private static final Suit[] SUIT_OF = new Suit[DECK_SIZE];
+  private static final boolean[] RED = new boolean[DECK_SIZE];
+  private static final String[] LABELS = new String[DECK_SIZE];
+  private static final byte[][] LABEL_BYTES = new byte[DECK_SIZE][];
+  private static final Card[] CARDS = new Card[DECK_SIZE];
+
+  static {
+    for (int i = 0; i < DECK_SIZE; i++) {
+      Suit suit = SUITS[i / CARDS_PER_SUIT];
+      NUMBER_OF[i] = (byte) (i % CARDS_PER_SUIT + 1);
+      SUIT_OF[i] = suit;
+      RED[i] = suit == Suit.DIAMOND || suit == Suit.HEART;
+      LABELS[i] = NUMBERS[i % CARDS_PER_SUIT] + SYMBOLS[suit.ordinal()];
+      LABEL_BYTES[i] = LABELS[i].getBytes(StandardCharsets.UTF_8);
+    }
+    for (int i = 0; i < DECK_SIZE; i++) {
+      CARDS[i] = new Card(SUIT_OF[i], NUMBER_OF[i]);
+    }
+  }
+
   private final Suit suit;
   private final int number;
+  private final int ordinal;
 
   /**
-   * Instantiates a new Card.
+   * Instantiates a new Card. Prefer {@link #of(Suit, int)}, which returns the shared instance.
    *
    * @param suit   the suit
    * @param number the number
@@ -21,6 +66,88 @@ public final class Card {
     }
     this.number = number;
     this.suit = suit;
+    this.ordinal = (suit == null || number < 1) ? -1
+            : suit.ordinal() * CARDS_PER_SUIT + number - 1;
+  }
+
+  /**
+   * Return the shared card of the given suit and number.
+   *
+   * @param suit   the suit
+   * @param number the number between 1 and 13
+   * @return the card.
+   * @throws IllegalArgumentException if the suit is null or the number is out of range.
+   */
+  public static Card of(Suit suit, int number) {
+    if (suit == null || number < 1 || number > CARDS_PER_SUIT) {
+      throw new IllegalArgumentException("Card number invalid");
+    }
+    return CARDS[suit.ordinal() * CARDS_PER_SUIT + number - 1];
+  }
+
+  /**
+   * Return the shared card with the given ordinal.
+   *
+   * @param ordinal the ordinal between 0 and 51
+   * @return the card.
+   * @throws IllegalArgumentException if the ordinal is out of range.
+   */
+  public static Card valueOf(int ordinal) {
+    if (ordinal < 0 || ordinal >= DECK_SIZE) {
+      throw new IllegalArgumentException("Card ordinal invalid");
+    }
+    return CARDS[ordinal];
+  }
+
+  /**
+   * Return the number of the card with the given ordinal.
+   *
+   * @param ordinal the ordinal between 0 and 51
+   * @return the number between 1 and 13.
+   */
+  public static int numberOf(int ordinal) {
+    return NUMBER_OF[ordinal];
+  }
+
+  /**
+   * Return the suit of the card with the given ordinal.
+   *
+   * @param ordinal the ordinal between 0 and 51
+   * @return the suit.
+   */
+  public static Suit suitOf(int ordinal) {
+    return SUIT_OF[ordinal];
+  }
+
+  /**
+   * Check whether the card with the given ordinal is a diamond or a heart.
+   *
+   * @param ordinal the ordinal between 0 and 51
+   * @return true if the card is red, false otherwise.
+   */
+  public static boolean isRed(int ordinal) {
+    return RED[ordinal];
+  }
+
+  /**
+   * Return the label of the card with the given ordinal, as returned by {@link #toString()}.
+   *
+   * @param ordinal the ordinal between 0 and 51
+   * @return the label.
+   */
+  public static String labelOf(int ordinal) {
+    return LABELS[ordinal];
+  }
+
+  /**
+   * Return the label of the card with the given ordinal encoded in UTF-8. The returned array is
+   * shared and must not be modified.
+   *
+   * @param ordinal the ordinal between 0 and 51
+   * @return the UTF-8 bytes of the label.
+   */
+  static byte[] utf8LabelOf(int ordinal) {
+    return LABEL_BYTES[ordinal];
   }
 
   /**
@@ -41,6 +168,43 @@ public final class Card {
     return number;
   }
 
+  /**
+   * Gets the ordinal of the card.
+   *
+   * @return the ordinal between 0 and 51, or -1 if the card has no suit or a number below 1.
+   */
+  public int ordinal() {
+    return ordinal;
+  }
+
+  /**
+   * Two cards are equal if they have the same suit and number.
+   *
+   * @param o the other object
+   * @return true if the object is a card with the same suit and number, false otherwise.
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Card)) {
+      return false;
+    }
+    Card other = (Card) o;
+    return number == other.number && suit == other.suit;
+  }
+
+  /**
+   * Overridden hashCode method.
+   *
+   * @return the ordinal for a valid card.
+   */
+  @Override
+  public int hashCode() {
+    return ordinal >= 0 ? ordinal : Objects.hash(suit, number);
+  }
+
   /**
    * Overridden toString method.
    *
@@ -48,54 +212,10 @@ public final class Card {
    */
   @Override
   public String toString() {
-    if (suit == Suit.DIAMOND) {
-      if (number == 1) {
-        return "A\u2666";
-      } else if (number == 11) {
-        return "J\u2666";
-      } else if (number == 12) {
-        return "Q\u2666";
-      } else if (number == 13) {
-        return "K\u2666";
-      } else {
-        return number + "\u2666";
-      }
-    } else if (suit == Suit.CLUB) {
-      if (number == 1) {
-        return "A\u2663";
-      } else if (number == 11) {
-        return "J\u2663";
-      } else if (number == 12) {
-        return "Q\u2663";
-      } else if (number == 13) {
-        return "K\u2663";
-      } else {
-        return number + "\u2663";
-      }
-    } else if (suit == Suit.HEART) {
-      if (number == 1) {
-        return "A\u2665";
-      } else if (number == 11) {
-        return "J\u2665";
-      } else if (number == 12) {
-        return "Q\u2665";
-      } else if (number == 13) {
-        return "K\u2665";
-      } else {
-        return number + "\u2665";
-      }
-    } else {
-      if (number == 1) {
-        return "A\u2660";
-      } else if (number == 11) {
-        return "J\u2660";
-      } else if (number == 12) {
-        return "Q\u2660";
-      } else if (number == 13) {
-        return "K\u2660";
-      } else {
-        return number + "\u2660";
-      }
+    if (ordinal >= 0) {
+      return LABELS[ordinal];
     }
+    String face = number >= 1 ? NUMBERS[number - 1] : String.valueOf(number);
+    return face + (suit == null ? SYMBOLS[Suit.SPADE.ordinal()] : SYMBOLS[suit.ordinal()]);
   }
 }
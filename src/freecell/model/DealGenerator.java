@@ -0,0 +1,178 @@
+package freecell.model;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The class DealGenerator which turns deal numbers into decks the way Microsoft FreeCell does, so
+ * that deal number N dealt with {@link FreecellOperations#startGame(List, boolean)} without
+ * shuffling, on eight cascade piles, is the classic game number N.
+ *
+ * <p>The deck is shuffled by the linear congruential generator of the Microsoft C library, seeded
+ * with the deal number, and cards are dealt one row at a time, which is how the model deals them.
+ * A generator keeps a single deck that every call overwrites, so any number of deals can be
+ * generated, written or read without allocating.
+ *
+ * <p>Deals are written as records of {@value #RECORD_SIZE} bytes, six bits per card in the order
+ * they are dealt, each card being its {@link Card#ordinal()}.
+ *
+ * <p>Usage: {@code java freecell.model.DealGenerator first count file} writes {@code count}
+ * deals, numbered from {@code first}, to the file.
+ *
+ * <p>A generator is not thread safe.
+ */
+public final class DealGenerator {
+
+  /**
+   * Largest deal number.
+   */
+  public static final long MAX_DEAL = Integer.MAX_VALUE;
+
+  /**
+   * Number of bytes of a written deal.
+   */
+  public static final int RECORD_SIZE = Card.DECK_SIZE * 6 / 8;
+
+  private static final int SUITS = 4;
+
+  private final int[] cards;
+  private final Card[] deck;
+  private final List<Card> view;
+  private final byte[] record;
+
+  /**
+   * Instantiates a new generator.
+   */
+  public DealGenerator() {
+    this.cards = new int[Card.DECK_SIZE];
+    this.deck = new Card[Card.DECK_SIZE];
+    this.view = Collections.unmodifiableList(Arrays.asList(deck));
+    this.record = new byte[RECORD_SIZE];
+  }
+
+  /**
+   * Return the deck of a deal, in the order its cards are dealt. The list returned is the same
+   * for every call and is overwritten by the next deal generated or read.
+   *
+   * @param number the deal number, from 1 to {@link #MAX_DEAL}
+   * @return the deck, which cannot be modified.
+   * @throws IllegalArgumentException if the deal number is out of range
+   */
+  public List<Card> deal(long number) {
+    if (number < 1 || number > MAX_DEAL) {
+      throw new IllegalArgumentException("Invalid deal number");
+    }
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      cards[i] = Card.DECK_SIZE - 1 - i;
+    }
+    long seed = number;
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      seed = (seed * 214013L + 2531011L) & 0x7fffffffL;
+      int j = Card.DECK_SIZE - 1 - (int) ((seed >> 16) % (Card.DECK_SIZE - i));
+      int swap = cards[i];
+      cards[i] = cards[j];
+      cards[j] = swap;
+    }
+    // Microsoft numbers a card four times its rank, from the ace, plus its suit.
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      deck[i] = Card.valueOf(cards[i] % SUITS * Card.CARDS_PER_SUIT + cards[i] / SUITS);
+    }
+    return view;
+  }
+
+  /**
+   * Write a run of consecutive deals, one record each. The stream should be buffered.
+   *
+   * @param out   the stream
+   * @param first the number of the first deal
+   * @param count the number of deals
+   * @throws IOException              if the stream fails
+   * @throws IllegalArgumentException if the stream is null, the count is negative or a deal
+   *                                  number is out of range
+   */
+  public void write(OutputStream out, long first, long count) throws IOException {
+    if (out == null) {
+      throw new IllegalArgumentException("Stream cannot be null");
+    }
+    if (count < 0 || count > 0 && (first < 1 || first > MAX_DEAL - count + 1)) {
+      throw new IllegalArgumentException("Invalid deal number");
+    }
+    for (long number = first; number < first + count; number++) {
+      deal(number);
+      for (int i = 0, b = 0; i < Card.DECK_SIZE; i += 4, b += 3) {
+        int bits = deck[i].ordinal() << 18 | deck[i + 1].ordinal() << 12
+                | deck[i + 2].ordinal() << 6 | deck[i + 3].ordinal();
+        record[b] = (byte) (bits >>> 16);
+        record[b + 1] = (byte) (bits >>> 8);
+        record[b + 2] = (byte) bits;
+      }
+      out.write(record);
+    }
+  }
+
+  /**
+   * Read the next deal written by {@link #write(OutputStream, long, long)}. The list returned is
+   * the same for every call and is overwritten by the next deal generated or read.
+   *
+   * @param in the stream
+   * @return the deck, which cannot be modified, or null at the end of the stream.
+   * @throws IOException              if the stream fails, ends in the middle of a deal or holds an
+   *                                  invalid card
+   * @throws IllegalArgumentException if the stream is null
+   */
+  public List<Card> read(InputStream in) throws IOException {
+    if (in == null) {
+      throw new IllegalArgumentException("Stream cannot be null");
+    }
+    int read = 0;
+    while (read < RECORD_SIZE) {
+      int n = in.read(record, read, RECORD_SIZE - read);
+      if (n < 0) {
+        if (read == 0) {
+          return null;
+        }
+        throw new EOFException("Deal record cut short");
+      }
+      read += n;
+    }
+    for (int i = 0, b = 0; i < Card.DECK_SIZE; i += 4, b += 3) {
+      int bits = (record[b] & 0xff) << 16 | (record[b + 1] & 0xff) << 8 | record[b + 2] & 0xff;
+      for (int k = 3; k >= 0; k--) {
+        int ordinal = bits & 0x3f;
+        if (ordinal >= Card.DECK_SIZE) {
+          throw new IOException("Invalid card in deal record");
+        }
+        deck[i + k] = Card.valueOf(ordinal);
+        bits >>>= 6;
+      }
+    }
+    return view;
+  }
+
+  /**
+   * Write a run of consecutive deals to a file.
+   *
+   * @param args the number of the first deal, the number of deals and the file
+   * @throws IOException if the file cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length != 3) {
+      System.err.println("Usage: java freecell.model.DealGenerator first count file");
+      return;
+    }
+    long first = Long.parseLong(args[0]);
+    long count = Long.parseLong(args[1]);
+    long start = System.nanoTime();
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[2]), 1 << 16)) {
+      new DealGenerator().write(out, first, count);
+    }
+    System.out.printf("%d deals written in %.1f ms%n", count, (System.nanoTime() - start) / 1e6);
+  }
+}
@@ -1,29 +1,50 @@
 package freecell.model;
 
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.SplittableRandom;
 
 /**
  * The class FreecellModel which implements the FreeCellOperations interface and has methods like
  * resetValues, checkAlternateSuit and shuffle which are used to reset values, check the alternate
- * suit during moving the cards and shuffle the deck if the boolean shuffle is true. It also has
- * private variables for cascade, foundation and open piles.
+ * suit during moving the cards and shuffle the deck if the boolean shuffle is true. The cascade,
+ * foundation and open piles are held in a {@link PackedBoard}.
  */
 public class FreecellModel implements FreecellOperations<Card> {
 
-  protected HashMap<Integer, LinkedList<Card>> cascade;
-  private HashMap<Integer, LinkedList<Card>> foundation;
-  protected HashMap<Integer, Card> open;
+  protected static final int CASCADE = PileType.CASCADE.ordinal();
+  protected static final int FOUNDATION = PileType.FOUNDATION.ordinal();
+  protected static final int OPEN = PileType.OPEN.ordinal();
+
+  /**
+   * Position of the number of cards moved in a journal entry, above the bits of the packed move.
+   */
+  private static final int JOURNAL_COUNT_SHIFT = 52;
+  private static final long JOURNAL_MOVE_MASK = (1L << JOURNAL_COUNT_SHIFT) - 1;
+
+  protected final PackedBoard board;
 
   protected int noOfCascadePiles;
   protected int noOfOpenPiles;
-  private String gameState;
   protected boolean gameStarted;
 
+  private final String[] lines;
+  private String gameState;
+  private ByteBuffer stateBuffer;
+
+  private long[] journal;
+  private int journalSize;
+  private int journalEnd;
+
+  private final int[] order;
+  private SplittableRandom random;
+
   /**
    * Instantiates a new Freecell model.
    *
@@ -31,15 +52,25 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param noOfOpenPiles    the no of open piles
    */
   protected FreecellModel(int noOfCascadePiles, int noOfOpenPiles) {
-    cascade = new HashMap<>();
-    foundation = new HashMap<>();
-    open = new HashMap<>();
+    this.board = new PackedBoard(noOfCascadePiles, noOfOpenPiles);
     this.noOfCascadePiles = noOfCascadePiles;
     this.noOfOpenPiles = noOfOpenPiles;
-    resetValues();
+    this.lines = new String[this.board.lineCount()];
+    this.journal = new long[256];
+    this.order = new int[Card.DECK_SIZE];
+    this.random = new SplittableRandom();
     this.gameStarted = false;
   }
 
+  /**
+   * Seed the generator the decks are shuffled with by {@link #startGame(List, boolean)}.
+   *
+   * @param seed the seed
+   */
+  void setSeed(long seed) {
+    this.random = new SplittableRandom(seed);
+  }
+
   /**
    * Return a valid and complete deck of cards for a game of Freecell. There is no restriction
    * imposed on the ordering of these cards in the deck. An invalid deck is defined as a deck that
@@ -52,19 +83,9 @@ public class FreecellModel implements FreecellOperations<Card> {
    */
   @Override
   public List<Card> getDeck() {
-    List<Card> deck = new ArrayList<>();
-    for (int i = 0; i < 52; i++) {
-      Card card;
-      if (i <= 12) {
-        card = new Card(Suit.CLUB, ((i % 13) + 1));
-      } else if (i <= 25) {
-        card = new Card(Suit.DIAMOND, ((i % 13) + 1));
-      } else if (i <= 38) {
-        card = new Card(Suit.HEART, ((i % 13) + 1));
-      } else {
-        card = new Card(Suit.SPADE, ((i % 13) + 1));
-      }
-      deck.add(card);
+    List<Card> deck = new ArrayList<>(Card.DECK_SIZE);
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      deck.add(Card.valueOf(i));
     }
     return (deck);
   }
@@ -73,16 +94,7 @@ public class FreecellModel implements FreecellOperations<Card> {
    * Private method used to reset all the values of the game.
    */
   private void resetValues() {
-    for (int i = 0; i < noOfCascadePiles; i++) {
-      this.cascade.put(i, new LinkedList<>());
-    }
-    for (int i = 0; i < 4; i++) {
-      this.foundation.put(i, new LinkedList<>());
-    }
-    for (int i = 0; i < noOfOpenPiles; i++) {
-      this.open.put(i, null);
-    }
-    this.gameState = "";
+    this.board.reset();
   }
 
   /**
@@ -91,7 +103,9 @@ public class FreecellModel implements FreecellOperations<Card> {
    * roundrobin fashion. Thus if there are 4 cascade piles, the 1st pile will get cards 0, 4, 8,
    * ..., the 2nd pile will get cards 1, 5, 9, ..., the 3rd pile will get cards 2, 6, 10, ... and
    * the 4th pile will get cards 3, 7, 11, .... Depending on the number of cascade piles, they may
-   * have a different number of cards
+   * have a different number of cards. The given deck is never modified: it is shuffled as an
+   * array of card ordinals held by the model, with the model's own generator, which is seeded if
+   * the builder was given a seed.
    *
    * @param deck    the deck to be dealt
    * @param shuffle if true, shuffle the deck else deal the deck as-is
@@ -99,54 +113,137 @@ public class FreecellModel implements FreecellOperations<Card> {
    */
   @Override
   public void startGame(List<Card> deck, boolean shuffle) throws IllegalArgumentException {
-    List distinctDeck = deck.stream().map(Card::toString).distinct().collect(Collectors.toList());
-    if (deck.size() != distinctDeck.size() || distinctDeck.size() != 52) {
-      throw new IllegalArgumentException("Deck is invalid");
+    validateDeck(deck);
+    if (shuffle) {
+      shuffle(deck, this.random);
+    } else {
+      for (int i = 0; i < Card.DECK_SIZE; i++) {
+        this.order[i] = deck.get(i).ordinal();
+      }
     }
+    deal();
+  }
 
-    deck = shuffle ? shuffle(deck) : deck;
+  /**
+   * Deal a new game of freecell with the given deck shuffled by a generator seeded with the given
+   * seed, so that the same deck and seed always deal the same game. The given deck is not
+   * modified.
+   *
+   * @param deck the deck to be shuffled and dealt
+   * @param seed the seed of the shuffle
+   * @throws IllegalArgumentException if the deck is invalid
+   */
+  public void startGame(List<Card> deck, long seed) throws IllegalArgumentException {
+    validateDeck(deck);
+    shuffle(deck, new SplittableRandom(seed));
+    deal();
+  }
 
+  /**
+   * Deal the cards of {@link #order} among the cascade piles in roundrobin fashion and start the
+   * game.
+   */
+  private void deal() {
     resetValues();
-    LinkedList<Card> c;
-    for (int i = 0; i < deck.size(); i++) {
-      for (int j = 0; j < this.noOfCascadePiles; j++) {
-        if (i % noOfCascadePiles == j % noOfCascadePiles) {
-          c = this.cascade.get(j % noOfCascadePiles);
-          c.add(deck.get(i));
-          this.cascade.put(j % noOfCascadePiles, c);
-        }
-      }
+    int pile = 0;
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      this.board.pushCascade(pile, this.order[i]);
+      pile = pile + 1 == noOfCascadePiles ? 0 : pile + 1;
     }
 
+    this.journalSize = 0;
+    this.journalEnd = 0;
     this.gameStarted = true;
   }
 
   /**
-   * Return deck after shuffling it.
+   * Verify that the deck holds each of the 52 cards exactly once. Every card sets the bit of its
+   * ordinal in a 64-bit mask, so duplicates, null cards and cards with an invalid suit or number
+   * are found in a single pass without allocating.
+   *
+   * @param deck the deck to be verified
+   * @throws IllegalArgumentException if the deck is invalid
+   */
+  private static void validateDeck(List<Card> deck) {
+    if (deck == null || deck.size() != Card.DECK_SIZE) {
+      throw new IllegalArgumentException("Deck is invalid");
+    }
+    long seen = 0L;
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      Card card = deck.get(i);
+      if (card == null || card.ordinal() < 0 || (seen & (1L << card.ordinal())) != 0) {
+        throw new IllegalArgumentException("Deck is invalid");
+      }
+      seen |= 1L << card.ordinal();
+    }
+  }
+
+  /**
+   * Copy the ordinals of the deck to {@link #order} in a random order, by an inside-out
+   * Fisher-Yates shuffle.
    *
-   * @param deck the deck that needs to be shuffled.
-   * @return deck of cards as a List of cards after shuffling.
+   * @param deck   the deck that needs to be shuffled.
+   * @param random the generator of the shuffle.
    */
-  private List<Card> shuffle(List<Card> deck) {
-    Collections.shuffle(deck);
-    return deck;
+  private void shuffle(List<Card> deck, SplittableRandom random) {
+    for (int i = 0; i < Card.DECK_SIZE; i++) {
+      int j = random.nextInt(i + 1);
+      this.order[i] = this.order[j];
+      this.order[j] = deck.get(i).ordinal();
+    }
   }
 
   /**
    * This methods checks whether the two card passed as argument are of different color or not.
    *
-   * @param destCard   Card of destination pile to check the color.
-   * @param sourceCard Card from source Pile.
+   * @param destCard   ordinal of the card of destination pile to check the color.
+   * @param sourceCard ordinal of the card from source Pile.
    * @return true if the cards are of different color, false otherwise.
    */
-  protected boolean checkAlternateSuit(Card destCard, Card sourceCard) {
-    if (destCard.getSuit() == Suit.SPADE || destCard.getSuit() == Suit.CLUB) {
-      return sourceCard.getSuit() == Suit.HEART || sourceCard.getSuit() == Suit.DIAMOND;
-    } else if (destCard.getSuit() == Suit.HEART || destCard.getSuit() == Suit.DIAMOND) {
-      return sourceCard.getSuit() == Suit.SPADE || sourceCard.getSuit() == Suit.CLUB;
-    } else {
-      return false;
+  protected boolean checkAlternateSuit(int destCard, int sourceCard) {
+    return Card.isRed(destCard) != Card.isRed(sourceCard);
+  }
+
+  /**
+   * This method checks whether a card can be put on another card of a cascade pile, that is
+   * whether it is one less than and of a different color from that card.
+   *
+   * @param destCard   ordinal of the last card of the destination pile.
+   * @param sourceCard ordinal of the card to be put on it.
+   * @return true if the card can be put on the other one, false otherwise.
+   */
+  protected boolean canStack(int destCard, int sourceCard) {
+    return Card.numberOf(destCard) - 1 == Card.numberOf(sourceCard)
+            && checkAlternateSuit(destCard, sourceCard);
+  }
+
+  /**
+   * This method checks whether a card can be put on a foundation pile, that is whether it is an
+   * ace and the pile is empty, or it is one more than and of the same suit as the last card of the
+   * pile.
+   *
+   * @param card the ordinal of the card.
+   * @param pile the foundation pile number, starting at 0.
+   * @return true if the card can be put on the foundation pile, false otherwise.
+   */
+  protected boolean canMoveToFoundation(int card, int pile) {
+    int top = this.board.foundationTop(pile);
+    if (top == PackedBoard.EMPTY) {
+      return Card.numberOf(card) == 1;
     }
+    return Card.numberOf(top) + 1 == Card.numberOf(card) && Card.suitOf(top) == Card.suitOf(card);
+  }
+
+  /**
+   * Return the status of a card that cannot be moved to a foundation pile.
+   *
+   * @param pile the foundation pile number, starting at 0
+   * @return {@link MoveStatus#CANNOT_MOVE} if the pile is empty, so only an ace could go there,
+   *         {@link MoveStatus#ILLEGAL_CARD} otherwise.
+   */
+  private int foundationFailure(int pile) {
+    return this.board.foundationTop(pile) == PackedBoard.EMPTY ? MoveStatus.CANNOT_MOVE
+            : MoveStatus.ILLEGAL_CARD;
   }
 
   /**
@@ -163,22 +260,203 @@ public class FreecellModel implements FreecellOperations<Card> {
   @Override
   public void move(PileType sourceType, int sourcePileNumber, int cardIndex,
                    PileType destinationType, int destPileNumber) {
+    MoveStatus.check(tryMove(sourceType, sourcePileNumber, cardIndex, destinationType,
+            destPileNumber));
+  }
+
+  /**
+   * Move a card from the given source pile to the given destination pile if the move is valid,
+   * and report the outcome as a status code instead of throwing.
+   *
+   * @param sourceType       the type of the source pile see @link{freecell.model.PileType}
+   * @param sourcePileNumber the pile number of the given type, starting at 0
+   * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
+   * @param destinationType  the type of the destination pile
+   * @param destPileNumber   the pile number of the given type, starting at 0
+   * @return {@link MoveStatus#OK} if the move was made, another {@link MoveStatus} code otherwise.
+   */
+  @Override
+  public int tryMove(PileType sourceType, int sourcePileNumber, int cardIndex,
+                     PileType destinationType, int destPileNumber) {
     if (!this.gameStarted) {
-      throw new IllegalStateException("Game not started yet so cannot make a move.");
+      return MoveStatus.NOT_STARTED;
     }
+    boolean fromCascade = sourceType == PileType.CASCADE;
+    int sourceSize = fromCascade && sourcePileNumber >= 0 && sourcePileNumber < noOfCascadePiles
+            ? this.board.cascadeSize(sourcePileNumber) : 1;
+    int status = dispatchMove(sourceType, sourcePileNumber, cardIndex, destinationType,
+            destPileNumber);
+    if (status == MoveStatus.OK) {
+      int count = fromCascade ? sourceSize - this.board.cascadeSize(sourcePileNumber) : 1;
+      record(Moves.pack(sourceType.ordinal(), sourcePileNumber, fromCascade ? cardIndex : 0,
+              destinationType.ordinal(), destPileNumber) | (long) count << JOURNAL_COUNT_SHIFT);
+    }
+    return status;
+  }
 
+  /**
+   * Make the move by calling the method for its source and destination pile types.
+   *
+   * @param sourceType       the type of the source pile
+   * @param sourcePileNumber the pile number of the given type, starting at 0
+   * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
+   * @param destinationType  the type of the destination pile
+   * @param destPileNumber   the pile number of the given type, starting at 0
+   * @return the {@link MoveStatus} code of the move.
+   */
+  private int dispatchMove(PileType sourceType, int sourcePileNumber, int cardIndex,
+                           PileType destinationType, int destPileNumber) {
     if (sourceType == PileType.CASCADE && destinationType == PileType.CASCADE) {
-      moveCascadeToCascade(sourcePileNumber, cardIndex, destPileNumber);
+      return moveCascadeToCascade(sourcePileNumber, cardIndex, destPileNumber);
     } else if (sourceType == PileType.CASCADE && destinationType == PileType.OPEN) {
-      moveCascadeToOpen(sourcePileNumber, cardIndex, destPileNumber);
+      return moveCascadeToOpen(sourcePileNumber, cardIndex, destPileNumber);
     } else if (sourceType == PileType.CASCADE && destinationType == PileType.FOUNDATION) {
-      moveCascadeToFoundation(sourcePileNumber, cardIndex, destPileNumber);
+      return moveCascadeToFoundation(sourcePileNumber, cardIndex, destPileNumber);
     } else if (sourceType == PileType.OPEN && destinationType == PileType.CASCADE) {
-      moveOpenToCascade(sourcePileNumber, cardIndex, destPileNumber);
+      return moveOpenToCascade(sourcePileNumber, cardIndex, destPileNumber);
     } else if (sourceType == PileType.OPEN && destinationType == PileType.FOUNDATION) {
-      moveOpenToFoundation(sourcePileNumber, cardIndex, destPileNumber);
+      return moveOpenToFoundation(sourcePileNumber, cardIndex, destPileNumber);
     } else if (sourceType == PileType.OPEN && destinationType == PileType.OPEN) {
-      moveOpenToOpen(sourcePileNumber, cardIndex, destPileNumber);
+      return moveOpenToOpen(sourcePileNumber, cardIndex, destPileNumber);
+    }
+    return MoveStatus.BAD_PILE_TYPE;
+  }
+
+  /**
+   * Make a move packed as described in {@link Moves} if it is valid, and report the outcome as a
+   * status code instead of throwing.
+   *
+   * @param move the packed move
+   * @return {@link MoveStatus#OK} if the move was made, {@link MoveStatus#BAD_PILE_TYPE} if the
+   *         move is {@link Moves#NONE} or a pile type field is out of range, another {@link
+   *         MoveStatus} code otherwise.
+   */
+  public int tryMove(long move) {
+    if (!Moves.hasPileTypes(move)) {
+      return MoveStatus.BAD_PILE_TYPE;
+    }
+    return tryMove(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+            Moves.destinationType(move), Moves.destinationPile(move));
+  }
+
+  /**
+   * Add a move that has been made to the journal, dropping the moves that could be redone.
+   *
+   * @param entry the packed move and the number of cards it moved
+   */
+  private void record(long entry) {
+    if (this.journalSize == this.journal.length) {
+      this.journal = Arrays.copyOf(this.journal, this.journal.length * 2);
+    }
+    this.journal[this.journalSize++] = entry;
+    this.journalEnd = this.journalSize;
+  }
+
+  /**
+   * Check whether there is a move to undo.
+   *
+   * @return true if a move has been made since the game started and not undone, false otherwise.
+   */
+  public boolean canUndo() {
+    return this.journalSize > 0;
+  }
+
+  /**
+   * Check whether there is a move to redo.
+   *
+   * @return true if a move has been undone and no other move made since, false otherwise.
+   */
+  public boolean canRedo() {
+    return this.journalSize < this.journalEnd;
+  }
+
+  /**
+   * Return the number of moves made since the game started, not counting the moves undone.
+   *
+   * @return the number of moves.
+   */
+  public int getMoveCount() {
+    return this.journalSize;
+  }
+
+  /**
+   * Return the last move made, packed as described in {@link Moves}.
+   *
+   * @return the packed move, or {@link Moves#NONE} if there is no move to undo.
+   */
+  public long getLastMove() {
+    return this.journalSize == 0 ? Moves.NONE
+            : this.journal[this.journalSize - 1] & JOURNAL_MOVE_MASK;
+  }
+
+  /**
+   * Take back the last move made. The journal records the piles and the number of cards of every
+   * move, so a move, including a build moved between cascade piles, is undone in constant time.
+   *
+   * @throws IllegalStateException if there is no move to undo
+   */
+  public void undo() throws IllegalStateException {
+    if (!canUndo()) {
+      throw new IllegalStateException("No move to undo");
+    }
+    long entry = this.journal[--this.journalSize];
+    int count = (int) (entry >>> JOURNAL_COUNT_SHIFT);
+    int source = Moves.sourcePile(entry);
+    int dest = Moves.destinationPile(entry);
+    int destType = Moves.destinationType(entry).ordinal();
+    if (Moves.sourceType(entry) == PileType.CASCADE) {
+      if (destType == CASCADE) {
+        this.board.moveCascadeRun(dest, this.board.cascadeSize(dest) - count, source);
+      } else if (destType == OPEN) {
+        this.board.pushCascade(source, this.board.openCard(dest));
+        this.board.setOpen(dest, PackedBoard.EMPTY);
+      } else {
+        this.board.pushCascade(source, this.board.popFoundation(dest));
+      }
+    } else {
+      if (destType == CASCADE) {
+        this.board.setOpen(source, this.board.popCascade(dest));
+      } else if (destType == OPEN) {
+        this.board.setOpen(source, this.board.openCard(dest));
+        this.board.setOpen(dest, PackedBoard.EMPTY);
+      } else {
+        this.board.setOpen(source, this.board.popFoundation(dest));
+      }
+    }
+  }
+
+  /**
+   * Make again the last move taken back, in constant time.
+   *
+   * @throws IllegalStateException if there is no move to redo
+   */
+  public void redo() throws IllegalStateException {
+    if (!canRedo()) {
+      throw new IllegalStateException("No move to redo");
+    }
+    long entry = this.journal[this.journalSize++];
+    int count = (int) (entry >>> JOURNAL_COUNT_SHIFT);
+    int source = Moves.sourcePile(entry);
+    int dest = Moves.destinationPile(entry);
+    int destType = Moves.destinationType(entry).ordinal();
+    if (Moves.sourceType(entry) == PileType.CASCADE) {
+      if (destType == CASCADE) {
+        this.board.moveCascadeRun(source, this.board.cascadeSize(source) - count, dest);
+      } else if (destType == OPEN) {
+        this.board.setOpen(dest, this.board.popCascade(source));
+      } else {
+        this.board.pushFoundation(dest, this.board.popCascade(source));
+      }
+    } else {
+      int c = this.board.openCard(source);
+      this.board.setOpen(source, PackedBoard.EMPTY);
+      if (destType == CASCADE) {
+        this.board.pushCascade(dest, c);
+      } else if (destType == OPEN) {
+        this.board.setOpen(dest, c);
+      } else {
+        this.board.pushFoundation(dest, c);
+      }
     }
   }
 
@@ -188,26 +466,23 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveCascadeToCascade(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < noOfCascadePiles && destPileNumber >= 0
-            && destPileNumber < noOfCascadePiles) {
-      if (cardIndex == this.cascade.get(sourcePileNumber).size() - 1) {
-        Card c = this.cascade.get(sourcePileNumber).getLast();
-        Card dPLCard = this.cascade.get(destPileNumber).getLast();
-        if (((dPLCard.getNumber() - 1) == c.getNumber()) && checkAlternateSuit(dPLCard, c)) {
-          this.cascade.get(destPileNumber).add(c);
-          this.cascade.get(sourcePileNumber).removeLast();
-        } else {
-          throw new IllegalArgumentException("Invalid Card");
-        }
-      } else {
-        throw new IllegalArgumentException("Invalid card index");
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid pile number");
+  protected int moveCascadeToCascade(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfCascadePiles || destPileNumber < 0
+            || destPileNumber >= noOfCascadePiles) {
+      return MoveStatus.BAD_PILE;
+    }
+    if (cardIndex < 0 || cardIndex != this.board.cascadeSize(sourcePileNumber) - 1) {
+      return MoveStatus.BAD_INDEX;
+    }
+    int dPLCard = this.board.cascadeTop(destPileNumber);
+    if (dPLCard == PackedBoard.EMPTY
+            || !canStack(dPLCard, this.board.cascadeTop(sourcePileNumber))) {
+      return MoveStatus.ILLEGAL_CARD;
     }
+    this.board.pushCascade(destPileNumber, this.board.popCascade(sourcePileNumber));
+    return MoveStatus.OK;
   }
 
   /**
@@ -216,25 +491,21 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveCascadeToOpen(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < noOfCascadePiles && destPileNumber >= 0
-            && destPileNumber < noOfOpenPiles) {
-      if (cardIndex == this.cascade.get(sourcePileNumber).size() - 1) {
-        Card c = this.cascade.get(sourcePileNumber).getLast();
-        if (this.open.get(destPileNumber) == null) {
-          this.open.put(destPileNumber, c);
-          this.cascade.get(sourcePileNumber).removeLast();
-        } else {
-          throw new IllegalArgumentException("Open pile already filled");
-        }
-      } else {
-        throw new IllegalArgumentException("Invalid card index");
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid pile number");
+  protected int moveCascadeToOpen(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfCascadePiles || destPileNumber < 0
+            || destPileNumber >= noOfOpenPiles) {
+      return MoveStatus.BAD_PILE;
+    }
+    if (cardIndex < 0 || cardIndex != this.board.cascadeSize(sourcePileNumber) - 1) {
+      return MoveStatus.BAD_INDEX;
     }
+    if (this.board.openCard(destPileNumber) != PackedBoard.EMPTY) {
+      return MoveStatus.PILE_FILLED;
+    }
+    this.board.setOpen(destPileNumber, this.board.popCascade(sourcePileNumber));
+    return MoveStatus.OK;
   }
 
   /**
@@ -243,35 +514,21 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveCascadeToFoundation(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < noOfCascadePiles && destPileNumber >= 0
-            && destPileNumber < 4) {
-      if (cardIndex == this.cascade.get(sourcePileNumber).size() - 1) {
-        Card c = this.cascade.get(sourcePileNumber).getLast();
-        if (this.foundation.get(destPileNumber).isEmpty()) {
-          if (c.getNumber() == 1) {
-            this.foundation.get(destPileNumber).add(c);
-            this.cascade.get(sourcePileNumber).removeLast();
-          } else {
-            throw new IllegalArgumentException("Card cannot be moved");
-          }
-        } else {
-          Card dPLCard = this.foundation.get(destPileNumber).getLast();
-          if (((dPLCard.getNumber() + 1) == c.getNumber()) && dPLCard.getSuit() == c.getSuit()) {
-            this.foundation.get(destPileNumber).add(c);
-            this.cascade.get(sourcePileNumber).removeLast();
-          } else {
-            throw new IllegalArgumentException("Invalid Card");
-          }
-        }
-      } else {
-        throw new IllegalArgumentException("Invalid Card Index");
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid Pile Number");
+  protected int moveCascadeToFoundation(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfCascadePiles || destPileNumber < 0
+            || destPileNumber >= PackedBoard.FOUNDATION_PILES) {
+      return MoveStatus.BAD_PILE;
+    }
+    if (cardIndex < 0 || cardIndex != this.board.cascadeSize(sourcePileNumber) - 1) {
+      return MoveStatus.BAD_INDEX;
     }
+    if (!canMoveToFoundation(this.board.cascadeTop(sourcePileNumber), destPileNumber)) {
+      return foundationFailure(destPileNumber);
+    }
+    this.board.pushFoundation(destPileNumber, this.board.popCascade(sourcePileNumber));
+    return MoveStatus.OK;
   }
 
   /**
@@ -280,27 +537,24 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveOpenToCascade(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < noOfOpenPiles && destPileNumber >= 0
-            && destPileNumber < noOfCascadePiles) {
-      Card c;
-      if (this.open.get(sourcePileNumber) != null) {
-        c = this.open.get(sourcePileNumber);
-      } else {
-        throw new IllegalArgumentException("No Card in open pile");
-      }
-      Card dPLCard = this.cascade.get(destPileNumber).getLast();
-      if (((dPLCard.getNumber() - 1) == c.getNumber()) && checkAlternateSuit(dPLCard, c)) {
-        this.cascade.get(destPileNumber).add(c);
-        this.open.put(sourcePileNumber, null);
-      } else {
-        throw new IllegalArgumentException("Invalid card");
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid pile number");
+  protected int moveOpenToCascade(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfOpenPiles || destPileNumber < 0
+            || destPileNumber >= noOfCascadePiles) {
+      return MoveStatus.BAD_PILE;
+    }
+    int c = this.board.openCard(sourcePileNumber);
+    if (c == PackedBoard.EMPTY) {
+      return MoveStatus.EMPTY_PILE;
+    }
+    int dPLCard = this.board.cascadeTop(destPileNumber);
+    if (dPLCard == PackedBoard.EMPTY || !canStack(dPLCard, c)) {
+      return MoveStatus.ILLEGAL_CARD;
     }
+    this.board.pushCascade(destPileNumber, c);
+    this.board.setOpen(sourcePileNumber, PackedBoard.EMPTY);
+    return MoveStatus.OK;
   }
 
   /**
@@ -309,37 +563,23 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveOpenToFoundation(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < 4 && destPileNumber >= 0
-            && destPileNumber < noOfCascadePiles) {
-      Card c;
-      if (this.open.get(sourcePileNumber) != null) {
-        c = this.open.get(sourcePileNumber);
-      } else {
-        throw new IllegalArgumentException("No card in open pile");
-      }
-
-      if (this.foundation.get(destPileNumber).isEmpty()) {
-        if (c.getNumber() == 1) {
-          this.foundation.get(destPileNumber).add(c);
-          this.open.put(sourcePileNumber, null);
-        } else {
-          throw new IllegalArgumentException("Card cannot be moved");
-        }
-      } else {
-        Card dPLCard = this.foundation.get(destPileNumber).getLast();
-        if (((dPLCard.getNumber() + 1) == c.getNumber()) && dPLCard.getSuit() == c.getSuit()) {
-          this.foundation.get(destPileNumber).add(c);
-          this.open.put(sourcePileNumber, null);
-        } else {
-          throw new IllegalArgumentException("Invalid card");
-        }
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid pile number");
+  protected int moveOpenToFoundation(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfOpenPiles || destPileNumber < 0
+            || destPileNumber >= PackedBoard.FOUNDATION_PILES) {
+      return MoveStatus.BAD_PILE;
     }
+    int c = this.board.openCard(sourcePileNumber);
+    if (c == PackedBoard.EMPTY) {
+      return MoveStatus.EMPTY_PILE;
+    }
+    if (!canMoveToFoundation(c, destPileNumber)) {
+      return foundationFailure(destPileNumber);
+    }
+    this.board.pushFoundation(destPileNumber, c);
+    this.board.setOpen(sourcePileNumber, PackedBoard.EMPTY);
+    return MoveStatus.OK;
   }
 
   /**
@@ -348,90 +588,387 @@ public class FreecellModel implements FreecellOperations<Card> {
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveOpenToOpen(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < noOfOpenPiles && destPileNumber >= 0
-            && destPileNumber < noOfOpenPiles) {
-      if (this.open.get(sourcePileNumber) != null && this.open.get(destPileNumber) == null) {
-        this.open.put(destPileNumber, this.open.get(sourcePileNumber));
-        this.open.put(sourcePileNumber, null);
-      } else {
-        throw new IllegalArgumentException("No card in open pile");
-      }
+  protected int moveOpenToOpen(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfOpenPiles || destPileNumber < 0
+            || destPileNumber >= noOfOpenPiles) {
+      return MoveStatus.BAD_PILE;
+    }
+    int c = this.board.openCard(sourcePileNumber);
+    if (c == PackedBoard.EMPTY) {
+      return MoveStatus.EMPTY_PILE;
     }
+    if (this.board.openCard(destPileNumber) != PackedBoard.EMPTY) {
+      return MoveStatus.PILE_FILLED;
+    }
+    this.board.setOpen(destPileNumber, c);
+    this.board.setOpen(sourcePileNumber, PackedBoard.EMPTY);
+    return MoveStatus.OK;
   }
 
   /**
-   * Return the foundation in the form of string.
+   * Return the 64-bit Zobrist hash of the present position, which is kept up to date by every
+   * move, undo and redo in constant time per card moved. Two positions of games with the same
+   * number of piles have the same hash if every card is at the same place.
    *
-   * @return foundation pile in the form of string.
+   * @return the hash of the position.
    */
-  private String stringFoundation() {
-    String foundationPileString = "";
-    for (int i : foundation.keySet()) {
-      if (foundation.get(i).size() > 0) {
-        String tempFoundationString = "";
-        int k = i + 1;
-        for (int j = 0; j < foundation.get(i).size(); j++) {
-          Card c = foundation.get(i).get(j);
-          tempFoundationString += c.toString() + ", ";
-        }
-        tempFoundationString = tempFoundationString.replaceAll(", $", "").trim();
-        foundationPileString += "F" + k + ":" + " " + tempFoundationString + "\n";
-      } else {
-        int k = i + 1;
-        foundationPileString += "F" + k + ":" + "\n";
-      }
+  public long getHash() {
+    return this.board.hash();
+  }
+
+  /**
+   * Return the 64-bit Zobrist hash of the present position, ignoring the order of the cascade
+   * piles and of the open and foundation piles. Positions that differ only by swapping whole piles
+   * have the same canonical hash, which makes it suited to detecting duplicate positions.
+   *
+   * @return the canonical hash of the position.
+   */
+  public long getCanonicalHash() {
+    return this.board.canonicalHash();
+  }
+
+  /**
+   * Return a new model of the same rules and number of piles, in the same position as this one.
+   * The moves this model could undo or redo are not copied.
+   *
+   * @return the copy.
+   */
+  public FreecellModel copy() {
+    FreecellModel copy = new FreecellModel(noOfCascadePiles, noOfOpenPiles);
+    copy.copyPosition(this);
+    return copy;
+  }
+
+  /**
+   * Put this model in the position of another model with the same number of piles.
+   *
+   * @param other the model to copy the position of
+   */
+  protected void copyPosition(FreecellModel other) {
+    this.board.copyFrom(other.board);
+    this.gameStarted = other.gameStarted;
+  }
+
+  /**
+   * Return the number of bytes {@link #saveState(byte[], int)} writes, which is the same for every
+   * position of this game.
+   *
+   * @return the number of bytes.
+   */
+  public int getStateSize() {
+    return this.board.stateSize();
+  }
+
+  /**
+   * Write the present position to an array in {@link #getStateSize()} bytes, so that it can be
+   * put back later with {@link #restoreState(byte[], int)} on this model or another with the same
+   * number of piles. Nothing is allocated.
+   *
+   * @param dst    the array to write to
+   * @param offset the index of the first byte to write
+   * @throws IllegalArgumentException if the array is too small
+   */
+  public void saveState(byte[] dst, int offset) {
+    checkStateBounds(dst, offset);
+    this.board.save(dst, offset);
+  }
+
+  /**
+   * Put the game in a position written by {@link #saveState(byte[], int)}. The game is started if
+   * it was not, and the moves that could be undone or redone are forgotten.
+   *
+   * @param src    the array to read from
+   * @param offset the index of the first byte to read
+   * @throws IllegalArgumentException if the array is too small
+   */
+  public void restoreState(byte[] src, int offset) {
+    checkStateBounds(src, offset);
+    this.board.restore(src, offset);
+    this.journalSize = 0;
+    this.journalEnd = 0;
+    this.gameStarted = true;
+  }
+
+  /**
+   * Check that an array has room for a saved position at the given index.
+   *
+   * @param state  the array
+   * @param offset the index of the first byte of the position
+   * @throws IllegalArgumentException if the array is too small
+   */
+  private void checkStateBounds(byte[] state, int offset) {
+    if (state == null || offset < 0 || offset > state.length - this.board.stateSize()) {
+      throw new IllegalArgumentException("State buffer too small");
     }
-    return foundationPileString;
   }
 
   /**
-   * Return the open card in the form of the String.
+   * Return the number of cascade piles of this game.
    *
-   * @return Open cards in the form of a String.
+   * @return the number of cascade piles.
    */
-  private String stringOpen() {
-    String openPileString = "";
-    for (int i : open.keySet()) {
-      int k = i + 1;
-      if (open.get(i) != null) {
-        String tempOpenString = "";
-        Card c = open.get(i);
-        tempOpenString += c.toString() + ", ";
-        tempOpenString = tempOpenString.replaceAll(", $", "").trim();
-        openPileString += "O" + k + ":" + " " + tempOpenString + "\n";
-      } else {
-        openPileString += "O" + k + ":" + "\n";
+  public int getNoOfCascadePiles() {
+    return noOfCascadePiles;
+  }
+
+  /**
+   * Return the number of open piles of this game.
+   *
+   * @return the number of open piles.
+   */
+  public int getNoOfOpenPiles() {
+    return noOfOpenPiles;
+  }
+
+  /**
+   * Return the number of foundation piles of this game.
+   *
+   * @return the number of foundation piles.
+   */
+  public int getNoOfFoundationPiles() {
+    return PackedBoard.FOUNDATION_PILES;
+  }
+
+  /**
+   * Return the number of cards in a cascade pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the number of cards.
+   * @throws IndexOutOfBoundsException if there is no such pile
+   */
+  public int getCascadeSize(int pile) {
+    return this.board.cascadeSize(pile);
+  }
+
+  /**
+   * Return a card of a cascade pile, as its {@link Card#ordinal()}.
+   *
+   * @param pile  the pile number, starting at 0
+   * @param index the index of the card in the pile, starting at 0
+   * @return the ordinal of the card.
+   * @throws IndexOutOfBoundsException if there is no such pile or card
+   */
+  public int getCascadeCard(int pile, int index) {
+    if (index < 0 || index >= this.board.cascadeSize(pile)) {
+      throw new IndexOutOfBoundsException("Invalid card index");
+    }
+    return this.board.cascadeCard(pile, index);
+  }
+
+  /**
+   * Return the card of an open pile, as its {@link Card#ordinal()}.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the ordinal of the card, or -1 if the pile is empty.
+   * @throws IndexOutOfBoundsException if there is no such pile
+   */
+  public int getOpenCard(int pile) {
+    return this.board.openCard(pile);
+  }
+
+  /**
+   * Return the number of cards in a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the number of cards.
+   * @throws IndexOutOfBoundsException if there is no such pile
+   */
+  public int getFoundationSize(int pile) {
+    return this.board.foundationSize(pile);
+  }
+
+  /**
+   * Return a card of a foundation pile, as its {@link Card#ordinal()}.
+   *
+   * @param pile  the pile number, starting at 0
+   * @param index the index of the card in the pile, starting at 0
+   * @return the ordinal of the card.
+   * @throws IndexOutOfBoundsException if there is no such pile or card
+   */
+  public int getFoundationCard(int pile, int index) {
+    if (index < 0 || index >= this.board.foundationSize(pile)) {
+      throw new IndexOutOfBoundsException("Invalid card index");
+    }
+    return this.board.foundationCard(pile, index);
+  }
+
+  /**
+   * Return an upper bound on the number of legal moves in any position of this game, which is a
+   * safe size for the buffer given to {@link #generateMoves(long[])}.
+   *
+   * @return the largest number of moves {@link #generateMoves(long[])} can return, saturated at
+   *         {@link Integer#MAX_VALUE}.
+   */
+  public int getMaxMoves() {
+    long cascades = noOfCascadePiles;
+    long opens = noOfOpenPiles;
+    long moves = cascades * (cascades - 1) * maxCardsPerCascadeMove()
+            + cascades * (opens + PackedBoard.FOUNDATION_PILES)
+            + opens * (cascades + PackedBoard.FOUNDATION_PILES + opens - 1);
+    return (int) Math.min(moves, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Return the number of different cards of a cascade pile that can be moved to another cascade
+   * pile in a single move.
+   *
+   * @return 1, as only the last card of a cascade pile can be moved.
+   */
+  protected int maxCardsPerCascadeMove() {
+    return 1;
+  }
+
+  /**
+   * Fill the buffer with every legal move in the present position, packed as described in {@link
+   * Moves}. Moves to a foundation pile come first, then moves from an open pile to a cascade pile,
+   * moves between cascade piles, and moves to an open pile last. Nothing is allocated.
+   *
+   * @param moves the buffer to fill, starting at index 0
+   * @return the number of moves written to the buffer.
+   * @throws IllegalArgumentException if the buffer is too small, see {@link #getMaxMoves()}
+   * @throws IllegalStateException    if the game has not started
+   */
+  public int generateMoves(long[] moves) {
+    if (!this.gameStarted) {
+      throw new IllegalStateException("Game not started yet so cannot generate moves.");
+    }
+    int count = 0;
+    for (int i = 0; i < noOfCascadePiles; i++) {
+      int card = this.board.cascadeTop(i);
+      if (card != PackedBoard.EMPTY) {
+        for (int f = 0; f < PackedBoard.FOUNDATION_PILES; f++) {
+          if (canMoveToFoundation(card, f)) {
+            count = addMove(moves, count,
+                    Moves.pack(CASCADE, i, this.board.cascadeSize(i) - 1, FOUNDATION, f));
+          }
+        }
+      }
+    }
+    for (int i = 0; i < noOfOpenPiles; i++) {
+      int card = this.board.openCard(i);
+      if (card != PackedBoard.EMPTY) {
+        for (int f = 0; f < PackedBoard.FOUNDATION_PILES; f++) {
+          if (canMoveToFoundation(card, f)) {
+            count = addMove(moves, count, Moves.pack(OPEN, i, 0, FOUNDATION, f));
+          }
+        }
       }
     }
-    return openPileString;
+    for (int i = 0; i < noOfOpenPiles; i++) {
+      int card = this.board.openCard(i);
+      if (card != PackedBoard.EMPTY) {
+        for (int c = 0; c < noOfCascadePiles; c++) {
+          int top = this.board.cascadeTop(c);
+          if (top != PackedBoard.EMPTY && canStack(top, card)) {
+            count = addMove(moves, count, Moves.pack(OPEN, i, 0, CASCADE, c));
+          }
+        }
+      }
+    }
+    count = generateCascadeToCascadeMoves(moves, count);
+    for (int i = 0; i < noOfCascadePiles; i++) {
+      if (this.board.cascadeSize(i) > 0) {
+        for (int o = 0; o < noOfOpenPiles; o++) {
+          if (this.board.openCard(o) == PackedBoard.EMPTY) {
+            count = addMove(moves, count,
+                    Moves.pack(CASCADE, i, this.board.cascadeSize(i) - 1, OPEN, o));
+          }
+        }
+      }
+    }
+    for (int i = 0; i < noOfOpenPiles; i++) {
+      if (this.board.openCard(i) != PackedBoard.EMPTY) {
+        for (int o = 0; o < noOfOpenPiles; o++) {
+          if (this.board.openCard(o) == PackedBoard.EMPTY) {
+            count = addMove(moves, count, Moves.pack(OPEN, i, 0, OPEN, o));
+          }
+        }
+      }
+    }
+    return count;
   }
 
   /**
-   * Return the Cascade Pile in the form of String.
+   * Add the legal moves from a cascade pile to another cascade pile to the buffer.
    *
-   * @return Cascade Piles in the form of String.
+   * @param moves the buffer to fill
+   * @param count the number of moves already in the buffer
+   * @return the number of moves in the buffer.
+   * @throws IllegalArgumentException if the buffer is too small
    */
-  private String stringCascade() {
-    String cascadePileString = "";
-    for (int i : cascade.keySet()) {
-      if (cascade.get(i).size() > 0) {
-        String tempString = "";
-        int k = i + 1;
-        for (int j = 0; j < cascade.get(i).size(); j++) {
-          Card c = cascade.get(i).get(j);
-          tempString += c.toString() + ", ";
+  protected int generateCascadeToCascadeMoves(long[] moves, int count) {
+    for (int i = 0; i < noOfCascadePiles; i++) {
+      int card = this.board.cascadeTop(i);
+      if (card != PackedBoard.EMPTY) {
+        for (int c = 0; c < noOfCascadePiles; c++) {
+          int top = this.board.cascadeTop(c);
+          if (top != PackedBoard.EMPTY && canStack(top, card)) {
+            count = addMove(moves, count,
+                    Moves.pack(CASCADE, i, this.board.cascadeSize(i) - 1, CASCADE, c));
+          }
         }
-        tempString = tempString.replaceAll(", $", "").trim();
-        cascadePileString += "C" + k + ":" + " " + tempString + "\n";
-      } else {
-        int k = i + 1;
-        cascadePileString += "C" + k + ":" + "\n";
       }
     }
-    return cascadePileString;
+    return count;
+  }
+
+  /**
+   * Add a move to the buffer.
+   *
+   * @param moves the buffer to fill
+   * @param count the number of moves already in the buffer
+   * @param move  the packed move
+   * @return the number of moves in the buffer.
+   * @throws IllegalArgumentException if the buffer is full
+   */
+  protected static int addMove(long[] moves, int count, long move) {
+    if (count == moves.length) {
+      throw new IllegalArgumentException("Move buffer too small");
+    }
+    moves[count] = move;
+    return count + 1;
+  }
+
+  /**
+   * Return a foundation pile in the form of a line of the game state.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the foundation pile in the form of string.
+   */
+  private String stringFoundation(int pile) {
+    StringBuilder line = new StringBuilder("F").append(pile + 1).append(':');
+    for (int j = 0; j < board.foundationSize(pile); j++) {
+      line.append(j == 0 ? " " : ", ").append(Card.labelOf(board.foundationCard(pile, j)));
+    }
+    return line.toString();
+  }
+
+  /**
+   * Return an open pile in the form of a line of the game state.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the open pile in the form of a String.
+   */
+  private String stringOpen(int pile) {
+    String line = "O" + (pile + 1) + ":";
+    return board.openCard(pile) == PackedBoard.EMPTY ? line
+            : line + " " + Card.labelOf(board.openCard(pile));
+  }
+
+  /**
+   * Return a cascade pile in the form of a line of the game state.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the cascade pile in the form of String.
+   */
+  private String stringCascade(int pile) {
+    StringBuilder line = new StringBuilder("C").append(pile + 1).append(':');
+    for (int j = 0; j < board.cascadeSize(pile); j++) {
+      line.append(j == 0 ? " " : ", ").append(Card.labelOf(board.cascadeCard(pile, j)));
+    }
+    return line.toString();
   }
 
   /**
@@ -462,10 +999,116 @@ public class FreecellModel implements FreecellOperations<Card> {
     if (!this.gameStarted) {
       return "";
     }
-    String cascadePileString = stringCascade();
-    String foundationPileString = stringFoundation();
-    String openPileString = stringOpen();
-    return this.gameState + foundationPileString + openPileString + cascadePileString.trim();
+    if (this.board.isDirty() || this.gameState == null) {
+      int length = 0;
+      for (int i = 0; i < this.lines.length; i++) {
+        if (this.board.isDirty(i) || this.lines[i] == null) {
+          this.lines[i] = renderLine(i);
+        }
+        length += this.lines[i].length() + 1;
+      }
+      this.board.clearDirty();
+      StringBuilder state = new StringBuilder(length);
+      for (int i = 0; i < this.lines.length; i++) {
+        if (i > 0) {
+          state.append('\n');
+        }
+        state.append(this.lines[i]);
+      }
+      this.gameState = state.toString();
+    }
+    return this.gameState;
+  }
+
+  /**
+   * Return the number of bytes of the present state of the game encoded in UTF-8, as written by
+   * {@link #writeGameState(ByteBuffer)}.
+   *
+   * @return the number of bytes, or 0 if the game has not started.
+   */
+  public int getGameStateLength() {
+    return this.gameStarted ? StateEncoder.encodedLength(this.board) : 0;
+  }
+
+  /**
+   * Write the present state of the game, in the format of {@link #getGameState()}, to the buffer
+   * as UTF-8 bytes. The card labels are copied from pre-encoded bytes, so no String is built.
+   * Nothing is written before the game has started.
+   *
+   * @param dst the buffer to write to
+   * @return the number of bytes written.
+   * @throws BufferOverflowException if the buffer has fewer than {@link #getGameStateLength()}
+   *                                 bytes remaining, in which case nothing is written
+   */
+  public int writeGameState(ByteBuffer dst) throws BufferOverflowException {
+    int length = getGameStateLength();
+    if (dst.remaining() < length) {
+      throw new BufferOverflowException();
+    }
+    if (length > 0) {
+      StateEncoder.encode(this.board, dst);
+    }
+    return length;
+  }
+
+  /**
+   * Write the present state of the game, in the format of {@link #getGameState()}, to the channel
+   * as UTF-8 bytes. The bytes are staged in a direct buffer owned by the model, which is reused
+   * across calls.
+   *
+   * <p>The channel must be in blocking mode: the call returns once every byte is written. A
+   * selectable channel in non-blocking mode, which may write only part of the bytes or none at
+   * all, is rejected rather than written to in a loop until it is ready.
+   *
+   * @param channel the channel to write to, in blocking mode
+   * @return the number of bytes written.
+   * @throws IllegalArgumentException if the channel is null or a selectable channel in
+   *                                  non-blocking mode
+   * @throws IOException              if the channel cannot be written to
+   */
+  public int writeGameState(WritableByteChannel channel) throws IOException {
+    if (channel == null) {
+      throw new IllegalArgumentException("Channel cannot be null");
+    }
+    if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+      throw new IllegalArgumentException("Channel must be in blocking mode");
+    }
+    if (this.stateBuffer == null) {
+      this.stateBuffer = ByteBuffer.allocateDirect(
+              StateEncoder.maxEncodedLength(noOfCascadePiles, noOfOpenPiles));
+    }
+    this.stateBuffer.clear();
+    int length = writeGameState(this.stateBuffer);
+    this.stateBuffer.flip();
+    while (this.stateBuffer.hasRemaining()) {
+      channel.write(this.stateBuffer);
+    }
+    return length;
+  }
+
+  /**
+   * Render the given line of the game state.
+   *
+   * @param line the line number, starting at 0
+   * @return the pile shown on the line in the form of a String.
+   */
+  private String renderLine(int line) {
+    if (line < this.board.openLine(0)) {
+      return stringFoundation(line);
+    } else if (line < this.board.cascadeLine(0)) {
+      return stringOpen(line - this.board.openLine(0));
+    } else {
+      return stringCascade(line - this.board.cascadeLine(0));
+    }
+  }
+
+  /**
+   * Signal if the game has started or not.
+   *
+   * @return true if a game has been started or a position restored, false otherwise
+   */
+  public boolean isGameStarted() {
+    return this.gameStarted;
   }
 
   /**
@@ -475,12 +1118,7 @@ public class FreecellModel implements FreecellOperations<Card> {
    */
   @Override
   public boolean isGameOver() {
-    for (int i = 0; i < 4; i++) {
-      if (this.foundation.get(i).size() != 13) {
-        return false;
-      }
-    }
-    return true;
+    return this.board.isComplete();
   }
 
   /**
@@ -505,6 +1143,14 @@ public class FreecellModel implements FreecellOperations<Card> {
      * The Open piles.
      */
     int openPiles;
+    /**
+     * Whether the shuffle is seeded.
+     */
+    boolean seeded;
+    /**
+     * The seed of the shuffle.
+     */
+    long seed;
 
     /**
      * Instantiates a new Freecell operations builder.
@@ -544,6 +1190,19 @@ public class FreecellModel implements FreecellOperations<Card> {
       return this;
     }
 
+    /**
+     * Seed freecell operations builder.
+     *
+     * @param seed the seed of the generator the model shuffles its decks with.
+     * @return the freecell operations builder
+     */
+    @Override
+    public FreecellOperationsBuilder seed(long seed) {
+      this.seeded = true;
+      this.seed = seed;
+      return this;
+    }
+
     /**
      * Return a new free cell model with specified cascade and open piles.
      *
@@ -551,7 +1210,11 @@ public class FreecellModel implements FreecellOperations<Card> {
      */
     @Override
     public FreecellOperations<Card> build() {
-      return new FreecellModel(this.cascadePiles, this.openPiles);
+      FreecellModel model = new FreecellModel(this.cascadePiles, this.openPiles);
+      if (this.seeded) {
+        model.setSeed(this.seed);
+      }
+      return model;
     }
   }
 }
@@ -1,7 +1,5 @@
 package freecell.model;
 
-import java.util.List;
-
 public class FreecellMultiMoveModel extends FreecellModel {
 
   /**
@@ -15,108 +13,106 @@ public class FreecellMultiMoveModel extends FreecellModel {
   }
 
   /**
-   * Move a card from the given source pile to the given destination pile, if the move is valid.
+   * Return a new multi move model with the same number of piles, in the same position as this
+   * one. The moves this model could undo or redo are not copied.
    *
-   * @param sourceType       the type of the source pile see @link{freecell.model.PileType}
-   * @param sourcePileNumber the pile number of the given type, starting at 0
-   * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
-   * @param destinationType  the type of the destination pile (see
-   * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
-   * @throws IllegalStateException    if a move is attempted before the game has starts
+   * @return the copy.
    */
   @Override
-  public void move(PileType sourceType, int sourcePileNumber, int cardIndex,
-                   PileType destinationType, int destPileNumber) {
-    if (!this.gameStarted) {
-      throw new IllegalStateException("Game not started yet so cannot make a move.");
-    }
-
-    if (sourceType == PileType.CASCADE && destinationType == PileType.CASCADE) {
-      moveCascadeToCascade(sourcePileNumber, cardIndex, destPileNumber);
-    } else if (sourceType == PileType.CASCADE && destinationType == PileType.OPEN) {
-      moveCascadeToOpen(sourcePileNumber, cardIndex, destPileNumber);
-    } else if (sourceType == PileType.CASCADE && destinationType == PileType.FOUNDATION) {
-      moveCascadeToFoundation(sourcePileNumber, cardIndex, destPileNumber);
-    } else if (sourceType == PileType.OPEN && destinationType == PileType.CASCADE) {
-      moveOpenToCascade(sourcePileNumber, cardIndex, destPileNumber);
-    } else if (sourceType == PileType.OPEN && destinationType == PileType.FOUNDATION) {
-      moveOpenToFoundation(sourcePileNumber, cardIndex, destPileNumber);
-    } else if (sourceType == PileType.OPEN && destinationType == PileType.OPEN) {
-      moveOpenToOpen(sourcePileNumber, cardIndex, destPileNumber);
-    }
+  public FreecellMultiMoveModel copy() {
+    FreecellMultiMoveModel copy = new FreecellMultiMoveModel(noOfCascadePiles, noOfOpenPiles);
+    copy.copyPosition(this);
+    return copy;
   }
 
   /**
-   * Move a card from Cascade pile to other Cascade pile, if the move is valid.
+   * Move the cards of a Cascade pile starting at the given index to other Cascade pile, if they
+   * form a build, there are enough empty piles to move them, and the move is valid.
    *
    * @param sourcePileNumber the pile number of the given type, starting at 0
    * @param cardIndex        the index of the card to be moved from the source pile, starting at 0
    * @param destPileNumber   the pile number of the given type, starting at 0
-   * @throws IllegalArgumentException if the move is not possible {@link PileType})
+   * @return the {@link MoveStatus} code of the move.
    */
-  protected void moveCascadeToCascade(int sourcePileNumber, int cardIndex, int destPileNumber) {
-    if (sourcePileNumber >= 0 && sourcePileNumber < noOfCascadePiles && destPileNumber >= 0
-            && destPileNumber < noOfCascadePiles) {
-      if (cardIndex <= this.cascade.get(sourcePileNumber).size() - 1 && cardIndex >= 0) {
-        int size = this.cascade.get(sourcePileNumber).size();
-        List<Card> sublist = this.cascade.get(sourcePileNumber).subList(cardIndex, size);
-        int number = (int) ((countEmptyOpenPiles() + 1) * Math.pow(2, countEmptyCascadePiles()));
-        if (checkBuild(sublist) && sublist.size() <= number) {
-          Card c = sublist.get(0);
-          if (!this.cascade.get(destPileNumber).isEmpty()) {
-            Card dPLCard = this.cascade.get(destPileNumber).getLast();
-            if (((dPLCard.getNumber() - 1) == c.getNumber()) && checkAlternateSuit(dPLCard, c)) {
-              this.cascade.get(destPileNumber).addAll(sublist);
-              this.cascade.get(sourcePileNumber).subList(cardIndex, size).clear();
-            } else {
-              throw new IllegalArgumentException("Invalid Card");
-            }
-          } else {
-            this.cascade.get(destPileNumber).addAll(sublist);
-            this.cascade.get(sourcePileNumber).removeAll(sublist);
-          }
-        } else {
-          throw new IllegalArgumentException("Not enough moves");
-        }
-      } else {
-        throw new IllegalArgumentException("Invalid card index");
-      }
-    } else {
-      throw new IllegalArgumentException("Invalid pile number");
+  @Override
+  protected int moveCascadeToCascade(int sourcePileNumber, int cardIndex, int destPileNumber) {
+    if (sourcePileNumber < 0 || sourcePileNumber >= noOfCascadePiles || destPileNumber < 0
+            || destPileNumber >= noOfCascadePiles) {
+      return MoveStatus.BAD_PILE;
     }
+    int size = this.board.cascadeSize(sourcePileNumber);
+    if (cardIndex < 0 || cardIndex > size - 1) {
+      return MoveStatus.BAD_INDEX;
+    }
+    if (!checkBuild(sourcePileNumber, cardIndex)
+            || size - cardIndex > this.board.supermoveCapacity()) {
+      return MoveStatus.NO_CAPACITY;
+    }
+    int dPLCard = this.board.cascadeTop(destPileNumber);
+    if (dPLCard != PackedBoard.EMPTY
+            && !canStack(dPLCard, this.board.cascadeCard(sourcePileNumber, cardIndex))) {
+      return MoveStatus.ILLEGAL_CARD;
+    }
+    this.board.moveCascadeRun(sourcePileNumber, cardIndex, destPileNumber);
+    return MoveStatus.OK;
   }
 
-  private int countEmptyOpenPiles() {
-    int noOfEmptyOpenPiles = 0;
-    for (int i = 0; i < this.noOfOpenPiles; i++) {
-      if (this.open.get(i) == null) {
-        noOfEmptyOpenPiles += 1;
-      }
-    }
-    return noOfEmptyOpenPiles;
+  /**
+   * Return the number of different cards of a cascade pile that can be moved to another cascade
+   * pile in a single move.
+   *
+   * @return 13, the length of the longest build.
+   */
+  @Override
+  protected int maxCardsPerCascadeMove() {
+    return Card.CARDS_PER_SUIT;
   }
 
-  private int countEmptyCascadePiles() {
-    int noOfEmptyCascadePiles = 0;
-    for (int i = 0; i < this.noOfCascadePiles; i++) {
-      if (this.cascade.get(i).isEmpty()) {
-        noOfEmptyCascadePiles += 1;
+  /**
+   * Add the legal moves from a cascade pile to another cascade pile to the buffer. A build at the
+   * end of a cascade pile can be moved as long as it has no more cards than {@link
+   * PackedBoard#supermoveCapacity()}, either onto a card it can be stacked on or to an empty
+   * cascade pile.
+   *
+   * @param moves the buffer to fill
+   * @param count the number of moves already in the buffer
+   * @return the number of moves in the buffer.
+   * @throws IllegalArgumentException if the buffer is too small
+   */
+  @Override
+  protected int generateCascadeToCascadeMoves(long[] moves, int count) {
+    int capacity = this.board.supermoveCapacity();
+    for (int i = 0; i < noOfCascadePiles; i++) {
+      int size = this.board.cascadeSize(i);
+      for (int k = size - 1; k >= 0 && size - k <= capacity; k--) {
+        int card = this.board.cascadeCard(i, k);
+        if (k < size - 1 && !canStack(card, this.board.cascadeCard(i, k + 1))) {
+          break;
+        }
+        for (int c = 0; c < noOfCascadePiles; c++) {
+          int top = this.board.cascadeTop(c);
+          if (c != i && (top == PackedBoard.EMPTY || canStack(top, card))) {
+            count = addMove(moves, count, Moves.pack(CASCADE, i, k, CASCADE, c));
+          }
+        }
       }
     }
-    return noOfEmptyCascadePiles;
+    return count;
   }
 
-  private boolean checkBuild(List<Card> cardList) {
-    for (int i = 0; i < cardList.size(); i++) {
-      if (i != (cardList.size() - 1)) {
-        Card c1 = cardList.get(i);
-        Card c2 = cardList.get(i + 1);
-        if (!(((c1.getNumber() - 1) == c2.getNumber()) && checkAlternateSuit(c1, c2))) {
-          return false;
-        }
-      } else {
-        return true;
+  /**
+   * Check whether the cards of a cascade pile from the given index to the end form a build, that
+   * is every card is one less than and of a different color from the card before it.
+   *
+   * @param pile      the pile number, starting at 0
+   * @param cardIndex the index of the first card of the build, starting at 0
+   * @return true if the cards form a build, false otherwise.
+   */
+  private boolean checkBuild(int pile, int cardIndex) {
+    int size = this.board.cascadeSize(pile);
+    for (int i = cardIndex; i < size - 1; i++) {
+      if (!canStack(this.board.cascadeCard(pile, i), this.board.cascadeCard(pile, i + 1))) {
+        return false;
       }
     }
     return true;
@@ -144,6 +140,14 @@ public class FreecellMultiMoveModel extends FreecellModel {
      * The Open piles.
      */
     int openPiles;
+    /**
+     * Whether the shuffle is seeded.
+     */
+    boolean seeded;
+    /**
+     * The seed of the shuffle.
+     */
+    long seed;
 
     /**
      * Instantiates a new Freecell operations builder.
@@ -183,6 +187,19 @@ public class FreecellMultiMoveModel extends FreecellModel {
       return this;
     }
 
+    /**
+     * Seed freecell operations builder.
+     *
+     * @param seed the seed of the generator the model shuffles its decks with.
+     * @return the freecell operations builder
+     */
+    @Override
+    public FreecellOperationsBuilder seed(long seed) {
+      this.seeded = true;
+      this.seed = seed;
+      return this;
+    }
+
     /**
      * Return a new free cell model with specified cascade and open piles.
      *
@@ -190,7 +207,11 @@ public class FreecellMultiMoveModel extends FreecellModel {
      */
     @Override
     public FreecellOperations<Card> build() {
-      return new FreecellMultiMoveModel(this.cascadePiles, this.openPiles);
+      FreecellMultiMoveModel model = new FreecellMultiMoveModel(this.cascadePiles, this.openPiles);
+      if (this.seeded) {
+        model.setSeed(this.seed);
+      }
+      return model;
     }
   }
 }
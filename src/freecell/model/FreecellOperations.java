@@ -59,6 +59,26 @@ public interface FreecellOperations<Card> {
             int destPileNumber) throws IllegalArgumentException,
           IllegalStateException;
 
+  /**
+   * Move a card from the given source pile to the given destination pile if the move is valid,
+   * like {@link #move(PileType, int, int, PileType, int)}, but report the outcome as a status code
+   * instead of throwing an exception.
+   *
+   * @param source         the type of the source pile see @link{freecell.model.PileType}
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source
+   *                       pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return {@link MoveStatus#OK} if the move was made, another {@link MoveStatus}
+   *         code otherwise
+   */
+  int tryMove(PileType source,
+              int pileNumber,
+              int cardIndex,
+              PileType destination,
+              int destPileNumber);
+
   /**
    * Signal if the game is over or not.
    *
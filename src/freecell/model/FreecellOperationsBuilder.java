@@ -21,6 +21,15 @@ public interface FreecellOperationsBuilder {
    */
   FreecellOperationsBuilder opens(int o);
 
+  /**
+   * Seed the generator the built model shuffles its decks with, so that the games it deals with
+   * shuffling are the same every time.
+   *
+   * @param seed the seed
+   * @return the freecell operations builder
+   */
+  FreecellOperationsBuilder seed(long seed);
+
   /**
    * Build freecell operations.
    *
@@ -0,0 +1,102 @@
+package freecell.model;
+
+/**
+ * The class MoveStatus which lists the status codes returned by {@link
+ * FreecellOperations#tryMove(PileType, int, int, PileType, int)}, and the message of the exception
+ * {@link FreecellOperations#move(PileType, int, int, PileType, int)} throws for each of them.
+ */
+public final class MoveStatus {
+
+  /**
+   * The move was made.
+   */
+  public static final int OK = 0;
+
+  /**
+   * The game has not started yet.
+   */
+  public static final int NOT_STARTED = 1;
+
+  /**
+   * A pile type is missing, or cards cannot be moved from or to a pile of that type.
+   */
+  public static final int BAD_PILE_TYPE = 2;
+
+  /**
+   * A pile number does not exist on the board.
+   */
+  public static final int BAD_PILE = 3;
+
+  /**
+   * The card index does not designate a card that can be moved from the source pile.
+   */
+  public static final int BAD_INDEX = 4;
+
+  /**
+   * The source open pile holds no card.
+   */
+  public static final int EMPTY_PILE = 5;
+
+  /**
+   * The destination open pile already holds a card.
+   */
+  public static final int PILE_FILLED = 6;
+
+  /**
+   * The card, or build, cannot be put on the destination pile.
+   */
+  public static final int ILLEGAL_CARD = 7;
+
+  /**
+   * The cards from the card index do not form a build, or form one with more cards than the empty
+   * open and cascade piles allow to move at once.
+   */
+  public static final int NO_CAPACITY = 8;
+
+  /**
+   * The card is not an ace and the destination foundation pile is empty.
+   */
+  public static final int CANNOT_MOVE = 9;
+
+  private static final String[] MESSAGES = {
+    "OK",
+    "Game not started yet so cannot make a move.",
+    "Invalid pile type",
+    "Invalid pile number",
+    "Invalid card index",
+    "No card in open pile",
+    "Open pile already filled",
+    "Invalid card",
+    "Not enough moves",
+    "Card cannot be moved"
+  };
+
+  private MoveStatus() {
+  }
+
+  /**
+   * Return the message describing a status code.
+   *
+   * @param status the status code
+   * @return the message.
+   */
+  public static String message(int status) {
+    return status >= 0 && status < MESSAGES.length ? MESSAGES[status] : "Unknown status";
+  }
+
+  /**
+   * Throw the exception {@link FreecellOperations#move(PileType, int, int, PileType, int)} throws
+   * for a status code, or do nothing if the move was made.
+   *
+   * @param status the status code
+   * @throws IllegalStateException    if the game has not started
+   * @throws IllegalArgumentException if the move is not possible
+   */
+  public static void check(int status) throws IllegalArgumentException, IllegalStateException {
+    if (status == NOT_STARTED) {
+      throw new IllegalStateException(message(status));
+    } else if (status != OK) {
+      throw new IllegalArgumentException(message(status));
+    }
+  }
+}
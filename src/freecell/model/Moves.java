@@ -0,0 +1,158 @@
+package freecell.model;
+
+/**
+ * The class Moves which packs a move, as given to {@link FreecellOperations#move(PileType, int,
+ * int, PileType, int)}, into a single long so that moves can be generated, stored and replayed
+ * without allocating. The layout of a packed move is:
+ * <pre>
+ * bits  0-1   source pile type (ordinal of {@link PileType})
+ * bits  2-3   destination pile type (ordinal of {@link PileType})
+ * bits  4-11  card index in the source pile, starting at 0
+ * bits 12-31  source pile number, starting at 0
+ * bits 32-51  destination pile number, starting at 0
+ * </pre>
+ * The remaining high bits are always 0 in a packed move.
+ */
+public final class Moves {
+
+  /**
+   * Value returned when there is no move.
+   */
+  public static final long NONE = -1L;
+
+  /**
+   * Largest pile number that fits in a packed move.
+   */
+  public static final int MAX_PILE_NUMBER = (1 << 20) - 1;
+
+  /**
+   * Largest card index that fits in a packed move.
+   */
+  public static final int MAX_CARD_INDEX = (1 << 8) - 1;
+
+  private static final PileType[] PILE_TYPES = PileType.values();
+  private static final char[] PILE_LETTERS = {'C', 'F', 'O'};
+
+  private Moves() {
+  }
+
+  /**
+   * Pack a move into a long.
+   *
+   * @param source         the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return the packed move.
+   * @throws IllegalArgumentException if a pile type is null or a number does not fit
+   */
+  public static long encode(PileType source, int pileNumber, int cardIndex,
+                            PileType destination, int destPileNumber) {
+    if (source == null || destination == null) {
+      throw new IllegalArgumentException("Invalid pile type");
+    }
+    if (pileNumber < 0 || pileNumber > MAX_PILE_NUMBER || destPileNumber < 0
+            || destPileNumber > MAX_PILE_NUMBER) {
+      throw new IllegalArgumentException("Invalid pile number");
+    }
+    if (cardIndex < 0 || cardIndex > MAX_CARD_INDEX) {
+      throw new IllegalArgumentException("Invalid card index");
+    }
+    return pack(source.ordinal(), pileNumber, cardIndex, destination.ordinal(), destPileNumber);
+  }
+
+  /**
+   * Pack a move into a long without checking its fields.
+   *
+   * @param source         the ordinal of the type of the source pile
+   * @param pileNumber     the pile number of the given type, starting at 0
+   * @param cardIndex      the index of the card to be moved from the source pile, starting at 0
+   * @param destination    the ordinal of the type of the destination pile
+   * @param destPileNumber the pile number of the given type, starting at 0
+   * @return the packed move.
+   */
+  static long pack(int source, int pileNumber, int cardIndex, int destination,
+                   int destPileNumber) {
+    return source | destination << 2 | cardIndex << 4 | (long) pileNumber << 12
+            | (long) destPileNumber << 32;
+  }
+
+  /**
+   * Check whether both pile type fields of a long hold the ordinal of a {@link PileType}, as they
+   * do in every packed move but not in {@link #NONE}.
+   *
+   * @param move the packed move
+   * @return true if the pile types can be decoded, false otherwise.
+   */
+  static boolean hasPileTypes(long move) {
+    return move >= 0 && ((int) move & 3) < PILE_TYPES.length
+            && ((int) (move >>> 2) & 3) < PILE_TYPES.length;
+  }
+
+  /**
+   * Return the type of the source pile of a packed move.
+   *
+   * @param move the packed move
+   * @return the type of the source pile.
+   */
+  public static PileType sourceType(long move) {
+    return PILE_TYPES[(int) move & 3];
+  }
+
+  /**
+   * Return the source pile number of a packed move.
+   *
+   * @param move the packed move
+   * @return the pile number, starting at 0.
+   */
+  public static int sourcePile(long move) {
+    return (int) (move >>> 12) & MAX_PILE_NUMBER;
+  }
+
+  /**
+   * Return the card index of a packed move.
+   *
+   * @param move the packed move
+   * @return the index of the card in the source pile, starting at 0.
+   */
+  public static int cardIndex(long move) {
+    return (int) (move >>> 4) & MAX_CARD_INDEX;
+  }
+
+  /**
+   * Return the type of the destination pile of a packed move.
+   *
+   * @param move the packed move
+   * @return the type of the destination pile.
+   */
+  public static PileType destinationType(long move) {
+    return PILE_TYPES[(int) (move >>> 2) & 3];
+  }
+
+  /**
+   * Return the destination pile number of a packed move.
+   *
+   * @param move the packed move
+   * @return the pile number, starting at 0.
+   */
+  public static int destinationPile(long move) {
+    return (int) (move >>> 32) & MAX_PILE_NUMBER;
+  }
+
+  /**
+   * Return a packed move as a command understood by the controller, such as {@code C1 7 O2},
+   * where pile numbers and the card index start at 1.
+   *
+   * @param move the packed move
+   * @return the command.
+   */
+  public static String toString(long move) {
+    if (move == NONE) {
+      return "none";
+    }
+    return PILE_LETTERS[(int) move & 3] + String.valueOf(sourcePile(move) + 1) + " "
+            + (cardIndex(move) + 1) + " " + PILE_LETTERS[(int) (move >>> 2) & 3]
+            + (destinationPile(move) + 1);
+  }
+}
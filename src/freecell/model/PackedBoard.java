@@ -0,0 +1,581 @@
+package freecell.model;
+
+import java.util.Arrays;
+
+/**
+ * The class PackedBoard which holds the cascade, foundation and open piles of a game of Freecell
+ * in a handful of primitive byte arrays. Every card is stored as its {@link Card#ordinal()}, so
+ * the board can be read and updated without boxing, hashing or allocating. Cascade piles are laid
+ * out back to back in a single array, each pile getting a fixed number of slots.
+ *
+ * <p>The board also keeps two 64-bit Zobrist hashes of the position, updated in constant time for
+ * every card it moves. The exact hash combines a key for every card and the pile and depth it sits
+ * at. The canonical hash ignores which cascade or open pile holds what: every cascade pile is
+ * hashed on its own from its cards and their depths, and the pile hashes are added up so that
+ * their order does not matter, while open and foundation cards only count as being in an open or
+ * a foundation pile. Keys are derived from the card and its location with the SplitMix64
+ * finalizer rather than read from a table, so boards of any size hash the same way.
+ */
+final class PackedBoard {
+
+  /**
+   * Marker stored in an open pile, or returned for the top of an empty pile, when there is no
+   * card.
+   */
+  static final byte EMPTY = -1;
+
+  /**
+   * Number of foundation piles on every board.
+   */
+  static final int FOUNDATION_PILES = 4;
+
+  private final int noOfCascadePiles;
+  private final int noOfOpenPiles;
+  private final int cascadeCapacity;
+
+  private final byte[] cascadeCards;
+  private final byte[] cascadeLength;
+  private final byte[] foundationCards;
+  private final byte[] foundationLength;
+  private final byte[] open;
+
+  private final boolean[] dirty;
+  private boolean anyDirty;
+
+  private final long[] cascadeHash;
+  private long hash;
+  private long canonicalCascadeHash;
+  private long canonicalOtherHash;
+
+  /**
+   * Instantiates a new empty packed board.
+   *
+   * @param noOfCascadePiles the no of cascade piles
+   * @param noOfOpenPiles    the no of open piles
+   */
+  PackedBoard(int noOfCascadePiles, int noOfOpenPiles) {
+    this.noOfCascadePiles = noOfCascadePiles;
+    this.noOfOpenPiles = noOfOpenPiles;
+    this.cascadeCapacity = cascadeCapacity(noOfCascadePiles);
+    this.cascadeCards = new byte[noOfCascadePiles * cascadeCapacity];
+    this.cascadeLength = new byte[noOfCascadePiles];
+    this.foundationCards = new byte[FOUNDATION_PILES * Card.CARDS_PER_SUIT];
+    this.foundationLength = new byte[FOUNDATION_PILES];
+    this.open = new byte[noOfOpenPiles];
+    this.dirty = new boolean[FOUNDATION_PILES + noOfOpenPiles + noOfCascadePiles];
+    this.cascadeHash = new long[noOfCascadePiles];
+    reset();
+  }
+
+  /**
+   * Return the number of slots a cascade pile needs. A pile never holds more than the cards it was
+   * dealt plus a descending build of at most 12 cards on top of them, or a single build of at most
+   * 13 cards once it has been emptied.
+   *
+   * @param noOfCascadePiles the no of cascade piles
+   * @return the maximum number of cards a single cascade pile can hold.
+   */
+  private static int cascadeCapacity(int noOfCascadePiles) {
+    int dealt = (Card.DECK_SIZE + noOfCascadePiles - 1) / noOfCascadePiles;
+    return Math.min(Card.DECK_SIZE, dealt + Card.CARDS_PER_SUIT - 1);
+  }
+
+  /**
+   * Copy every pile and hash of another board with the same number of piles into this one.
+   *
+   * @param other the board to copy
+   */
+  void copyFrom(PackedBoard other) {
+    System.arraycopy(other.cascadeCards, 0, cascadeCards, 0, cascadeCards.length);
+    System.arraycopy(other.cascadeLength, 0, cascadeLength, 0, cascadeLength.length);
+    System.arraycopy(other.foundationCards, 0, foundationCards, 0, foundationCards.length);
+    System.arraycopy(other.foundationLength, 0, foundationLength, 0, foundationLength.length);
+    System.arraycopy(other.open, 0, open, 0, open.length);
+    System.arraycopy(other.cascadeHash, 0, cascadeHash, 0, cascadeHash.length);
+    hash = other.hash;
+    canonicalCascadeHash = other.canonicalCascadeHash;
+    canonicalOtherHash = other.canonicalOtherHash;
+    Arrays.fill(dirty, true);
+    anyDirty = true;
+  }
+
+  /**
+   * Return the number of bytes {@link #save(byte[], int)} needs: the size of every cascade pile,
+   * the card of every open pile, the last card of every foundation pile and room for every card
+   * of the deck.
+   *
+   * @return the number of bytes.
+   */
+  int stateSize() {
+    return noOfCascadePiles + noOfOpenPiles + FOUNDATION_PILES + Card.DECK_SIZE;
+  }
+
+  /**
+   * Write the position of the board, in {@link #stateSize()} bytes at most. A foundation pile is
+   * saved as its last card only, as the cards below it follow from it.
+   *
+   * @param dst    the array to write to
+   * @param offset the index of the first byte to write
+   */
+  void save(byte[] dst, int offset) {
+    System.arraycopy(cascadeLength, 0, dst, offset, noOfCascadePiles);
+    offset += noOfCascadePiles;
+    System.arraycopy(open, 0, dst, offset, noOfOpenPiles);
+    offset += noOfOpenPiles;
+    for (int f = 0; f < FOUNDATION_PILES; f++) {
+      dst[offset++] = (byte) foundationTop(f);
+    }
+    for (int c = 0; c < noOfCascadePiles; c++) {
+      System.arraycopy(cascadeCards, c * cascadeCapacity, dst, offset, cascadeLength[c]);
+      offset += cascadeLength[c];
+    }
+  }
+
+  /**
+   * Put the board in a position written by {@link #save(byte[], int)} from a board with the same
+   * number of piles, and compute its hashes again.
+   *
+   * @param src    the array to read from
+   * @param offset the index of the first byte to read
+   */
+  void restore(byte[] src, int offset) {
+    reset();
+    int card = offset + noOfCascadePiles + noOfOpenPiles + FOUNDATION_PILES;
+    for (int c = 0; c < noOfCascadePiles; c++) {
+      for (int i = src[offset + c]; i > 0; i--) {
+        pushCascade(c, src[card++]);
+      }
+    }
+    offset += noOfCascadePiles;
+    for (int o = 0; o < noOfOpenPiles; o++) {
+      if (src[offset + o] != EMPTY) {
+        setOpen(o, src[offset + o]);
+      }
+    }
+    offset += noOfOpenPiles;
+    for (int f = 0; f < FOUNDATION_PILES; f++) {
+      int top = src[offset + f];
+      if (top != EMPTY) {
+        for (int ace = top - Card.numberOf(top) + 1; ace <= top; ace++) {
+          pushFoundation(f, ace);
+        }
+      }
+    }
+  }
+
+  /**
+   * Empty every pile of the board.
+   */
+  void reset() {
+    Arrays.fill(cascadeLength, (byte) 0);
+    Arrays.fill(foundationLength, (byte) 0);
+    Arrays.fill(open, EMPTY);
+    Arrays.fill(dirty, true);
+    anyDirty = true;
+    Arrays.fill(cascadeHash, 0L);
+    hash = 0L;
+    canonicalCascadeHash = 0L;
+    canonicalOtherHash = 0L;
+  }
+
+  /**
+   * Return the Zobrist hash of the position, which changes with the pile and depth of every card.
+   *
+   * @return the hash.
+   */
+  long hash() {
+    return hash;
+  }
+
+  /**
+   * Return the Zobrist hash of the position that ignores the order of the cascade piles and the
+   * order of the open and foundation piles.
+   *
+   * @return the canonical hash.
+   */
+  long canonicalHash() {
+    return canonicalCascadeHash ^ canonicalOtherHash;
+  }
+
+  /**
+   * Scramble a 64-bit value with the SplitMix64 finalizer, a bijection that maps 0 to 0.
+   *
+   * @param z the value
+   * @return the scrambled value.
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Return the Zobrist key of a card at a location.
+   *
+   * @param card     the ordinal of the card
+   * @param location a number identifying the location, see the callers
+   * @return the key.
+   */
+  private static long key(int card, long location) {
+    return mix((location << 6 | card) + 0x9e3779b97f4a7c15L);
+  }
+
+  /**
+   * Add a card to, or remove it from, the hashes of a cascade pile at the given depth.
+   *
+   * @param pile  the pile number, starting at 0
+   * @param depth the index of the card in the pile, starting at 0
+   * @param card  the ordinal of the card
+   */
+  private void hashCascade(int pile, int depth, int card) {
+    hash ^= key(card, ((long) pile << 8 | depth) << 3);
+    canonicalCascadeHash -= mix(cascadeHash[pile]);
+    cascadeHash[pile] ^= key(card, (long) depth << 3 | 3);
+    canonicalCascadeHash += mix(cascadeHash[pile]);
+  }
+
+  /**
+   * Add a card to, or remove it from, the hashes of an open pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @param card the ordinal of the card
+   */
+  private void hashOpen(int pile, int card) {
+    hash ^= key(card, (long) pile << 3 | 1);
+    canonicalOtherHash ^= key(card, 4);
+  }
+
+  /**
+   * Add a card to, or remove it from, the hashes of a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @param card the ordinal of the card
+   */
+  private void hashFoundation(int pile, int card) {
+    hash ^= key(card, (long) pile << 3 | 2);
+    canonicalOtherHash ^= key(card, 5);
+  }
+
+  /**
+   * Return the number of piles on the board, which is also the number of lines of the game state.
+   * Lines are numbered in the order of the game state: foundation piles first, then open piles,
+   * then cascade piles.
+   *
+   * @return the number of piles.
+   */
+  int lineCount() {
+    return dirty.length;
+  }
+
+  /**
+   * Return the line of the game state that shows a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the line number, starting at 0.
+   */
+  int foundationLine(int pile) {
+    return pile;
+  }
+
+  /**
+   * Return the line of the game state that shows an open pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the line number, starting at 0.
+   */
+  int openLine(int pile) {
+    return FOUNDATION_PILES + pile;
+  }
+
+  /**
+   * Return the line of the game state that shows a cascade pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the line number, starting at 0.
+   */
+  int cascadeLine(int pile) {
+    return FOUNDATION_PILES + noOfOpenPiles + pile;
+  }
+
+  /**
+   * Check whether any pile changed since the last call to {@link #clearDirty()}.
+   *
+   * @return true if a pile changed, false otherwise.
+   */
+  boolean isDirty() {
+    return anyDirty;
+  }
+
+  /**
+   * Check whether the pile shown on the given line changed since the last call to {@link
+   * #clearDirty()}.
+   *
+   * @param line the line number, starting at 0
+   * @return true if the pile changed, false otherwise.
+   */
+  boolean isDirty(int line) {
+    return dirty[line];
+  }
+
+  /**
+   * Forget which piles changed.
+   */
+  void clearDirty() {
+    if (anyDirty) {
+      Arrays.fill(dirty, false);
+      anyDirty = false;
+    }
+  }
+
+  /**
+   * Remember that the pile shown on the given line changed.
+   *
+   * @param line the line number, starting at 0
+   */
+  private void markDirty(int line) {
+    dirty[line] = true;
+    anyDirty = true;
+  }
+
+  /**
+   * Gets no of cascade piles.
+   *
+   * @return the no of cascade piles
+   */
+  int getNoOfCascadePiles() {
+    return noOfCascadePiles;
+  }
+
+  /**
+   * Gets no of open piles.
+   *
+   * @return the no of open piles
+   */
+  int getNoOfOpenPiles() {
+    return noOfOpenPiles;
+  }
+
+  /**
+   * Return the number of cards in a cascade pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the number of cards.
+   */
+  int cascadeSize(int pile) {
+    return cascadeLength[pile];
+  }
+
+  /**
+   * Return the card at the given index of a cascade pile.
+   *
+   * @param pile  the pile number, starting at 0
+   * @param index the index of the card, starting at 0
+   * @return the ordinal of the card.
+   */
+  int cascadeCard(int pile, int index) {
+    return cascadeCards[pile * cascadeCapacity + index];
+  }
+
+  /**
+   * Return the last card of a cascade pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the ordinal of the card, or {@link #EMPTY} if the pile is empty.
+   */
+  int cascadeTop(int pile) {
+    int size = cascadeLength[pile];
+    return size == 0 ? EMPTY : cascadeCards[pile * cascadeCapacity + size - 1];
+  }
+
+  /**
+   * Add a card at the end of a cascade pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @param card the ordinal of the card
+   */
+  void pushCascade(int pile, int card) {
+    hashCascade(pile, cascadeLength[pile], card);
+    cascadeCards[pile * cascadeCapacity + cascadeLength[pile]] = (byte) card;
+    cascadeLength[pile]++;
+    markDirty(cascadeLine(pile));
+  }
+
+  /**
+   * Remove the last card of a cascade pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the ordinal of the removed card.
+   */
+  int popCascade(int pile) {
+    cascadeLength[pile]--;
+    markDirty(cascadeLine(pile));
+    int card = cascadeCards[pile * cascadeCapacity + cascadeLength[pile]];
+    hashCascade(pile, cascadeLength[pile], card);
+    return card;
+  }
+
+  /**
+   * Move the cards of a cascade pile starting at the given index to the end of another cascade
+   * pile, keeping their order.
+   *
+   * @param sourcePile the source pile number, starting at 0
+   * @param cardIndex  the index of the first card to move, starting at 0
+   * @param destPile   the destination pile number, starting at 0
+   */
+  void moveCascadeRun(int sourcePile, int cardIndex, int destPile) {
+    int count = cascadeLength[sourcePile] - cardIndex;
+    for (int i = 0; i < count; i++) {
+      int card = cascadeCards[sourcePile * cascadeCapacity + cardIndex + i];
+      hashCascade(sourcePile, cardIndex + i, card);
+      hashCascade(destPile, cascadeLength[destPile] + i, card);
+    }
+    System.arraycopy(cascadeCards, sourcePile * cascadeCapacity + cardIndex, cascadeCards,
+            destPile * cascadeCapacity + cascadeLength[destPile], count);
+    cascadeLength[sourcePile] -= count;
+    cascadeLength[destPile] += count;
+    markDirty(cascadeLine(sourcePile));
+    markDirty(cascadeLine(destPile));
+  }
+
+  /**
+   * Return the card in an open pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the ordinal of the card, or {@link #EMPTY} if the pile is empty.
+   */
+  int openCard(int pile) {
+    return open[pile];
+  }
+
+  /**
+   * Put a card in, or with {@link #EMPTY} take it out of, an open pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @param card the ordinal of the card, or {@link #EMPTY}
+   */
+  void setOpen(int pile, int card) {
+    if (open[pile] != EMPTY) {
+      hashOpen(pile, open[pile]);
+    }
+    if (card != EMPTY) {
+      hashOpen(pile, card);
+    }
+    open[pile] = (byte) card;
+    markDirty(openLine(pile));
+  }
+
+  /**
+   * Return the number of cards in a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the number of cards.
+   */
+  int foundationSize(int pile) {
+    return foundationLength[pile];
+  }
+
+  /**
+   * Return the card at the given index of a foundation pile.
+   *
+   * @param pile  the pile number, starting at 0
+   * @param index the index of the card, starting at 0
+   * @return the ordinal of the card.
+   */
+  int foundationCard(int pile, int index) {
+    return foundationCards[pile * Card.CARDS_PER_SUIT + index];
+  }
+
+  /**
+   * Return the last card of a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the ordinal of the card, or {@link #EMPTY} if the pile is empty.
+   */
+  int foundationTop(int pile) {
+    int size = foundationLength[pile];
+    return size == 0 ? EMPTY : foundationCards[pile * Card.CARDS_PER_SUIT + size - 1];
+  }
+
+  /**
+   * Add a card at the end of a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @param card the ordinal of the card
+   */
+  void pushFoundation(int pile, int card) {
+    hashFoundation(pile, card);
+    foundationCards[pile * Card.CARDS_PER_SUIT + foundationLength[pile]] = (byte) card;
+    foundationLength[pile]++;
+    markDirty(foundationLine(pile));
+  }
+
+  /**
+   * Remove the last card of a foundation pile.
+   *
+   * @param pile the pile number, starting at 0
+   * @return the ordinal of the removed card.
+   */
+  int popFoundation(int pile) {
+    foundationLength[pile]--;
+    markDirty(foundationLine(pile));
+    int card = foundationCards[pile * Card.CARDS_PER_SUIT + foundationLength[pile]];
+    hashFoundation(pile, card);
+    return card;
+  }
+
+  /**
+   * Count the open piles that do not hold a card.
+   *
+   * @return the number of empty open piles.
+   */
+  int countEmptyOpenPiles() {
+    int count = 0;
+    for (int i = 0; i < noOfOpenPiles; i++) {
+      if (open[i] == EMPTY) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Count the cascade piles that do not hold a card.
+   *
+   * @return the number of empty cascade piles.
+   */
+  int countEmptyCascadePiles() {
+    int count = 0;
+    for (int i = 0; i < noOfCascadePiles; i++) {
+      if (cascadeLength[i] == 0) {
+        count += 1;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Return the number of cards that can be moved together from one cascade pile to another, which
+   * is the number of empty open piles plus one, doubled for every empty cascade pile. The result
+   * saturates at {@link Integer#MAX_VALUE} on boards with many empty piles.
+   *
+   * @return the number of cards that can be moved at once.
+   */
+  int supermoveCapacity() {
+    long capacity = (long) (countEmptyOpenPiles() + 1) << Math.min(countEmptyCascadePiles(), 31);
+    return (int) Math.min(capacity, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Check whether every foundation pile is complete.
+   *
+   * @return true if all 52 cards are on the foundation piles, false otherwise.
+   */
+  boolean isComplete() {
+    for (int i = 0; i < FOUNDATION_PILES; i++) {
+      if (foundationLength[i] != Card.CARDS_PER_SUIT) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
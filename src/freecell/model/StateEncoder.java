@@ -0,0 +1,148 @@
+package freecell.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The class StateEncoder which writes the game state of a {@link PackedBoard} as UTF-8 bytes, in
+ * the format documented by {@link FreecellOperations#getGameState()}. Card labels are copied from
+ * their pre-encoded bytes and pile numbers are written digit by digit, so no String is built.
+ */
+final class StateEncoder {
+
+  private static final byte NEWLINE = '\n';
+  private static final byte SPACE = ' ';
+  private static final byte COMMA = ',';
+  private static final byte COLON = ':';
+
+  /**
+   * Length of the longest label, a ten followed by a three byte suit symbol.
+   */
+  private static final int MAX_LABEL_LENGTH = 5;
+
+  private StateEncoder() {
+  }
+
+  /**
+   * Return the number of bytes needed to encode the game state of the board.
+   *
+   * @param board the board
+   * @return the number of bytes.
+   */
+  static int encodedLength(PackedBoard board) {
+    int length = board.lineCount() - 1;
+    for (int i = 0; i < PackedBoard.FOUNDATION_PILES; i++) {
+      length += headerLength(i + 1);
+      for (int j = 0; j < board.foundationSize(i); j++) {
+        length += (j == 0 ? 1 : 2) + Card.utf8LabelOf(board.foundationCard(i, j)).length;
+      }
+    }
+    for (int i = 0; i < board.getNoOfOpenPiles(); i++) {
+      length += headerLength(i + 1);
+      if (board.openCard(i) != PackedBoard.EMPTY) {
+        length += 1 + Card.utf8LabelOf(board.openCard(i)).length;
+      }
+    }
+    for (int i = 0; i < board.getNoOfCascadePiles(); i++) {
+      length += headerLength(i + 1);
+      for (int j = 0; j < board.cascadeSize(i); j++) {
+        length += (j == 0 ? 1 : 2) + Card.utf8LabelOf(board.cascadeCard(i, j)).length;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Return the largest number of bytes the game state of a board with the given number of piles
+   * can take, whatever the position.
+   *
+   * @param noOfCascadePiles the no of cascade piles
+   * @param noOfOpenPiles    the no of open piles
+   * @return the number of bytes.
+   */
+  static int maxEncodedLength(int noOfCascadePiles, int noOfOpenPiles) {
+    int lines = PackedBoard.FOUNDATION_PILES + noOfOpenPiles + noOfCascadePiles;
+    int widestHeader = headerLength(Math.max(noOfCascadePiles, noOfOpenPiles));
+    return lines * (widestHeader + 1) + Card.DECK_SIZE * (2 + MAX_LABEL_LENGTH);
+  }
+
+  /**
+   * Write the game state of the board to the buffer. The caller must make sure the buffer has at
+   * least {@link #encodedLength(PackedBoard)} bytes remaining.
+   *
+   * @param board the board
+   * @param dst   the buffer
+   */
+  static void encode(PackedBoard board, ByteBuffer dst) {
+    for (int i = 0; i < PackedBoard.FOUNDATION_PILES; i++) {
+      putHeader(dst, 'F', i + 1);
+      for (int j = 0; j < board.foundationSize(i); j++) {
+        putCard(dst, board.foundationCard(i, j), j == 0);
+      }
+      dst.put(NEWLINE);
+    }
+    for (int i = 0; i < board.getNoOfOpenPiles(); i++) {
+      putHeader(dst, 'O', i + 1);
+      if (board.openCard(i) != PackedBoard.EMPTY) {
+        putCard(dst, board.openCard(i), true);
+      }
+      dst.put(NEWLINE);
+    }
+    for (int i = 0; i < board.getNoOfCascadePiles(); i++) {
+      if (i > 0) {
+        dst.put(NEWLINE);
+      }
+      putHeader(dst, 'C', i + 1);
+      for (int j = 0; j < board.cascadeSize(i); j++) {
+        putCard(dst, board.cascadeCard(i, j), j == 0);
+      }
+    }
+  }
+
+  /**
+   * Return the number of bytes of a pile header such as {@code C12:}.
+   *
+   * @param pileNumber the pile number, starting at 1
+   * @return the number of bytes.
+   */
+  private static int headerLength(int pileNumber) {
+    int digits = 1;
+    for (int n = pileNumber; n >= 10; n /= 10) {
+      digits++;
+    }
+    return digits + 2;
+  }
+
+  /**
+   * Write a pile header such as {@code C12:}.
+   *
+   * @param dst        the buffer
+   * @param type       the letter of the pile type
+   * @param pileNumber the pile number, starting at 1
+   */
+  private static void putHeader(ByteBuffer dst, char type, int pileNumber) {
+    dst.put((byte) type);
+    int divisor = 1;
+    while (divisor <= pileNumber / 10) {
+      divisor *= 10;
+    }
+    for (; divisor > 0; divisor /= 10) {
+      dst.put((byte) ('0' + (pileNumber / divisor) % 10));
+    }
+    dst.put(COLON);
+  }
+
+  /**
+   * Write a card preceded by its separator.
+   *
+   * @param dst   the buffer
+   * @param card  the ordinal of the card
+   * @param first true if the card is the first of its pile
+   */
+  private static void putCard(ByteBuffer dst, int card, boolean first) {
+    if (!first) {
+      dst.put(COMMA);
+    }
+    dst.put(SPACE);
+    dst.put(Card.utf8LabelOf(card));
+  }
+}
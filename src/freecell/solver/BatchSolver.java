@@ -0,0 +1,294 @@
+package freecell.solver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import freecell.model.Card;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperationsBuilder;
+
+/**
+ * The class BatchSolver which solves every numbered deal of a range, as dealt by {@link
+ * DealGenerator}, and writes one CSV row per deal: its number, the status of the search, the
+ * number of moves of the solution, the number of positions expanded and the time taken in
+ * microseconds.
+ *
+ * <p>Deals are solved in chunks, each chunk by a parallel stream running in a pool of the given
+ * number of workers, every worker with its own model and {@link FreecellSolver}. Only the rows of
+ * one chunk are held in memory. Once a chunk is written the range of the run, the number of the
+ * next deal and the length of the output are saved, separated by spaces, to a checkpoint file next
+ * to the output, so a run that is interrupted resumes after the last chunk written when run again
+ * over the same range, dropping any row written after it. A checkpoint that is malformed or of
+ * another range is rejected, a checkpoint whose output is missing or shorter than saved is
+ * ignored and the range solved again from its start, and the checkpoint is deleted once the range
+ * is solved.
+ *
+ * <p>Usage: {@code java freecell.solver.BatchSolver first last output [--cascades n] [--opens n]
+ * [--single] [--threads n] [--nodes n] [--chunk n]}. Games have 8 cascade and 4 open piles and
+ * allow multi card moves unless told otherwise, are searched for up to {@link
+ * FreecellSolver#DEFAULT_MAX_NODES} positions and solved by one worker per available processor,
+ * {@value #DEFAULT_CHUNK} deals at a time.
+ */
+public final class BatchSolver {
+
+  /**
+   * Default number of deals solved between two checkpoints.
+   */
+  public static final int DEFAULT_CHUNK = 1000;
+
+  private static final String HEADER = "deal,status,moves,nodes,micros\n";
+
+  private final FreecellOperationsBuilder builder;
+  private final int threads;
+  private final long maxNodes;
+  private final int chunk;
+  private final ThreadLocal<Worker> workers;
+
+  /**
+   * Instantiates a new batch.
+   *
+   * @param builder  the builder of the models the deals are played on, which must be {@link
+   *                 FreecellModel} models
+   * @param threads  the number of workers
+   * @param maxNodes the number of positions expanded before giving up on a deal
+   * @param chunk    the number of deals solved between two checkpoints
+   * @throws IllegalArgumentException if the builder is null or does not build {@link
+   *                                  FreecellModel} models, or a number is not positive
+   */
+  public BatchSolver(FreecellOperationsBuilder builder, int threads, long maxNodes, int chunk) {
+    if (builder == null) {
+      throw new IllegalArgumentException("Builder cannot be null");
+    }
+    if (!(builder.<Card>build() instanceof FreecellModel)) {
+      throw new IllegalArgumentException("Builder must build FreecellModel models");
+    }
+    if (threads < 1 || maxNodes < 1 || chunk < 1) {
+      throw new IllegalArgumentException("Batch limits must be positive");
+    }
+    this.builder = builder;
+    this.threads = threads;
+    this.maxNodes = maxNodes;
+    this.chunk = chunk;
+    this.workers = ThreadLocal.withInitial(Worker::new);
+  }
+
+  /**
+   * Solve the deals of a range and write their rows to the output, resuming from its checkpoint
+   * if there is one, and delete the checkpoint once every deal is written.
+   *
+   * @param first  the number of the first deal
+   * @param last   the number of the last deal
+   * @param output the CSV file
+   * @return the number of deals solved by this run.
+   * @throws IOException              if the output or the checkpoint cannot be read or written
+   * @throws IllegalArgumentException if the range is invalid, the output is null or the checkpoint
+   *                                  of the output is malformed or of another range
+   * @throws IllegalStateException    if a worker fails or the run is interrupted
+   */
+  public long run(long first, long last, Path output) throws IOException {
+    if (first < 1 || last > DealGenerator.MAX_DEAL || first > last) {
+      throw new IllegalArgumentException("Invalid deal range");
+    }
+    if (output == null) {
+      throw new IllegalArgumentException("Output cannot be null");
+    }
+    Path checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+    long next = first;
+    long length = 0;
+    if (Files.exists(checkpoint)) {
+      long[] saved = readCheckpoint(checkpoint);
+      if (saved[0] != first || saved[1] != last) {
+        throw new IllegalArgumentException("Checkpoint " + checkpoint
+                + " is of another deal range");
+      }
+      if (saved[2] < first || saved[2] > last + 1 || saved[3] < 0) {
+        throw new IllegalArgumentException("Checkpoint " + checkpoint + " is malformed");
+      }
+      next = saved[2];
+      length = saved[3];
+    }
+    if (length > 0 && Files.exists(output) && Files.size(output) >= length) {
+      try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+        channel.truncate(length);
+      }
+    } else {
+      Files.write(output, HEADER.getBytes(StandardCharsets.US_ASCII));
+      next = first;
+      length = HEADER.length();
+    }
+
+    long solved = 0;
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try (BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.US_ASCII,
+            StandardOpenOption.APPEND)) {
+      while (next <= last) {
+        long from = next;
+        long to = Math.min(last, from + chunk - 1);
+        String[] rows = pool.submit(() -> LongStream.rangeClosed(from, to).parallel()
+                .mapToObj(this::solve).toArray(String[]::new)).get();
+        for (String row : rows) {
+          out.write(row);
+          length += row.length();
+        }
+        out.flush();
+        next = to + 1;
+        solved += rows.length;
+        saveCheckpoint(checkpoint, first, last, next, length);
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Batch failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Batch interrupted", e);
+    } finally {
+      pool.shutdown();
+    }
+    Files.deleteIfExists(checkpoint);
+    return solved;
+  }
+
+  /**
+   * Solve one deal on the worker of the present thread.
+   *
+   * @param deal the number of the deal
+   * @return the row of the deal.
+   */
+  private String solve(long deal) {
+    Worker worker = workers.get();
+    worker.model.startGame(worker.generator.deal(deal), false);
+    long start = System.nanoTime();
+    SolverResult result = worker.solver.solve(worker.model);
+    long micros = (System.nanoTime() - start) / 1000;
+    return deal + "," + result.getStatus() + "," + result.getMoveCount() + ","
+            + result.getNodes() + "," + micros + "\n";
+  }
+
+  /**
+   * Read the range, the next deal and the length of the output saved in a checkpoint.
+   *
+   * @param checkpoint the checkpoint file
+   * @return the first and last deal of the range, the next deal and the length, in this order.
+   * @throws IOException              if the checkpoint cannot be read
+   * @throws IllegalArgumentException if the checkpoint does not hold four numbers
+   */
+  private static long[] readCheckpoint(Path checkpoint) throws IOException {
+    String[] fields = new String(Files.readAllBytes(checkpoint), StandardCharsets.US_ASCII)
+            .trim().split(" ");
+    if (fields.length != 4) {
+      throw new IllegalArgumentException("Checkpoint " + checkpoint + " is malformed");
+    }
+    long[] saved = new long[fields.length];
+    try {
+      for (int i = 0; i < fields.length; i++) {
+        saved[i] = Long.parseLong(fields[i]);
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Checkpoint " + checkpoint + " is malformed", e);
+    }
+    return saved;
+  }
+
+  /**
+   * Replace the checkpoint, through a temporary file so it is never seen half written.
+   *
+   * @param checkpoint the checkpoint file
+   * @param first      the number of the first deal of the run
+   * @param last       the number of the last deal of the run
+   * @param next       the number of the next deal to solve
+   * @param length     the length of the output up to the last row written
+   * @throws IOException if the checkpoint cannot be written
+   */
+  private static void saveCheckpoint(Path checkpoint, long first, long last, long next,
+                                     long length) throws IOException {
+    Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+    Files.write(temporary, (first + " " + last + " " + next + " " + length + "\n")
+            .getBytes(StandardCharsets.US_ASCII));
+    Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * The model, deal generator and solver of one worker.
+   */
+  private final class Worker {
+
+    private final FreecellModel model;
+    private final DealGenerator generator;
+    private final FreecellSolver solver;
+
+    /**
+     * Instantiates a new worker.
+     */
+    private Worker() {
+      this.model = (FreecellModel) builder.<Card>build();
+      this.generator = new DealGenerator();
+      this.solver = new FreecellSolver(maxNodes, FreecellSolver.DEFAULT_MAX_DEPTH,
+              FreecellSolver.DEFAULT_WEIGHT);
+    }
+  }
+
+  /**
+   * Run the batch.
+   *
+   * @param args the range of deals, the output file and the options
+   * @throws IOException if the output cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 3) {
+      System.err.println("Usage: java freecell.solver.BatchSolver first last output"
+              + " [--cascades n] [--opens n] [--single] [--threads n] [--nodes n] [--chunk n]");
+      return;
+    }
+    int cascades = 8;
+    int opens = 4;
+    boolean multi = true;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long nodes = FreecellSolver.DEFAULT_MAX_NODES;
+    int chunk = DEFAULT_CHUNK;
+    for (int i = 3; i < args.length; i++) {
+      switch (args[i]) {
+        case "--cascades":
+          cascades = Integer.parseInt(args[++i]);
+          break;
+        case "--opens":
+          opens = Integer.parseInt(args[++i]);
+          break;
+        case "--single":
+          multi = false;
+          break;
+        case "--threads":
+          threads = Integer.parseInt(args[++i]);
+          break;
+        case "--nodes":
+          nodes = Long.parseLong(args[++i]);
+          break;
+        case "--chunk":
+          chunk = Integer.parseInt(args[++i]);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    FreecellOperationsBuilder builder = multi ? FreecellMultiMoveModel.getBuilder()
+            : FreecellModel.getBuilder();
+    builder.cascades(cascades).opens(opens);
+
+    long start = System.nanoTime();
+    long solved = new BatchSolver(builder, threads, nodes, chunk).run(Long.parseLong(args[0]),
+            Long.parseLong(args[1]), Paths.get(args[2]));
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf("%d deals in %.1f s, %.0f deals/s%n", solved, seconds, solved / seconds);
+  }
+}
@@ -0,0 +1,245 @@
+package freecell.solver;
+
+import freecell.model.FreecellModel;
+import freecell.model.MoveStatus;
+
+/**
+ * The class BeamSolver which searches for a solution in a fixed amount of memory, whatever the
+ * depth of the search, trading the completeness of {@link FreecellSolver} for a predictable
+ * footprint and latency.
+ *
+ * <p>The search goes one level of moves at a time and keeps, of all the children of the positions
+ * of a level, only the beam width best according to {@link Heuristics#evaluate(FreecellModel)}. A
+ * move to a foundation pile that can never hurt is made on its own without trying anything else.
+ * Positions are saved with {@link FreecellModel#saveState(byte[], int)} into two byte arrays of
+ * beam width slots, one for the level searched and one for the next, and the move and parent
+ * slot of every kept position are written to arrays of beam width times maximum depth entries.
+ * Positions already reached are skipped through an {@link OffHeapTranspositionTable} of fixed
+ * capacity. Everything is allocated when the solver is built and reused by every search, except
+ * for the copy of the model searched.
+ *
+ * <p>A position left out of the beam is never searched, so once any position has been left out
+ * the search proves nothing when the beam runs empty: it gives up. A game is only reported
+ * unsolvable when every reachable position fit in the beam.
+ *
+ * <p>A solver is not thread safe, but can solve any number of games one after the other.
+ */
+public final class BeamSolver {
+
+  /**
+   * Default number of positions kept at every level.
+   */
+  public static final int DEFAULT_WIDTH = 1000;
+
+  private final int width;
+  private final int maxDepth;
+  private final TranspositionTable visited;
+  private final int[] parents;
+  private final long[] moves;
+  private final int[] ranks;
+  private final int[] scores;
+  private final int[] heap;
+  private byte[] level;
+  private byte[] next;
+  private long[] buffer;
+  private int heapSize;
+  private int nextSize;
+  private boolean pruned;
+
+  /**
+   * Instantiates a new solver with the default beam width and maximum depth.
+   */
+  public BeamSolver() {
+    this(DEFAULT_WIDTH, FreecellSolver.DEFAULT_MAX_DEPTH);
+  }
+
+  /**
+   * Instantiates a new solver.
+   *
+   * @param width    the number of positions kept at every level
+   * @param maxDepth the number of moves of the longest line searched
+   * @throws IllegalArgumentException if the width or the depth is not positive, or the width
+   *                                  times the depth is too large
+   */
+  public BeamSolver(int width, int maxDepth) {
+    if (width < 1 || maxDepth < 1) {
+      throw new IllegalArgumentException("Beam width and depth must be positive");
+    }
+    if ((long) width * maxDepth > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Beam width times depth is too large");
+    }
+    this.width = width;
+    this.maxDepth = maxDepth;
+    int capacity = Integer.highestOneBit(Math.max(width, 64) * 32 - 1) << 1;
+    this.visited = new OffHeapTranspositionTable(
+            Math.min(capacity, OffHeapTranspositionTable.MAX_CAPACITY),
+            ReplacementPolicy.ALWAYS_REPLACE);
+    this.parents = new int[width * maxDepth];
+    this.moves = new long[width * maxDepth];
+    this.ranks = new int[4];
+    this.scores = new int[width];
+    this.heap = new int[width];
+    this.level = new byte[0];
+    this.next = new byte[0];
+    this.buffer = new long[0];
+  }
+
+  /**
+   * Search for a solution from the present position of a game. The model is not changed, a copy
+   * of it is searched.
+   *
+   * @param model the model, whose game has started
+   * @return the result of the search, {@link SolverStatus#UNSOLVABLE} only if no position was
+   *         ever left out of the beam, and {@link SolverStatus#GAVE_UP} if one was.
+   * @throws IllegalArgumentException if the model is null
+   * @throws IllegalStateException    if the game has not started
+   */
+  public SolverResult solve(FreecellModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    if (buffer.length < model.getMaxMoves()) {
+      buffer = new long[model.getMaxMoves()];
+    }
+    model.generateMoves(buffer);
+    int stateSize = model.getStateSize();
+    if (level.length < width * stateSize) {
+      level = new byte[width * stateSize];
+      next = new byte[width * stateSize];
+    }
+    visited.clear();
+    pruned = false;
+    visited.add(model.getCanonicalHash(), 0);
+    if (model.isGameOver()) {
+      return new SolverResult(SolverStatus.SOLVED, new long[0], 0);
+    }
+
+    FreecellModel work = model.copy();
+    work.saveState(level, 0);
+    int levelSize = 1;
+    long nodes = 0;
+    for (int depth = 0; depth < maxDepth; depth++) {
+      heapSize = 0;
+      nextSize = 0;
+      for (int slot = 0; slot < levelSize; slot++) {
+        work.restoreState(level, slot * stateSize);
+        nodes++;
+        int solved = expand(work, depth, slot, stateSize);
+        if (solved >= 0) {
+          return new SolverResult(SolverStatus.SOLVED, line(depth + 1, solved), nodes);
+        }
+      }
+      if (nextSize == 0) {
+        return new SolverResult(pruned ? SolverStatus.GAVE_UP : SolverStatus.UNSOLVABLE,
+                new long[0], nodes);
+      }
+      byte[] swap = level;
+      level = next;
+      next = swap;
+      levelSize = nextSize;
+    }
+    return new SolverResult(SolverStatus.GAVE_UP, new long[0], nodes);
+  }
+
+  /**
+   * Add the children of the position of the model to the next level, keeping the best ones.
+   *
+   * @param model     the model, in the position of the slot
+   * @param depth     the level of the position
+   * @param slot      the slot of the position in its level
+   * @param stateSize the number of bytes of a saved position
+   * @return the slot of a solved child in the next level, or -1 if there is none.
+   */
+  private int expand(FreecellModel model, int depth, int slot, int stateSize) {
+    int count = model.generateMoves(buffer);
+    Heuristics.foundationRanks(model, ranks);
+    for (int i = 0; i < count; i++) {
+      if (Heuristics.isUseful(model, buffer[i])
+              && Heuristics.isSafeToFoundation(model, buffer[i], ranks)) {
+        buffer[0] = buffer[i];
+        count = 1;
+        break;
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      long move = buffer[i];
+      if (Heuristics.isUseful(model, move) && model.tryMove(move) == MoveStatus.OK) {
+        if (visited.add(model.getCanonicalHash(), depth + 1)) {
+          int score = model.isGameOver() ? -1 : Heuristics.evaluate(model);
+          int child = place(score);
+          if (child >= 0) {
+            model.saveState(next, child * stateSize);
+            parents[depth * width + child] = slot;
+            moves[depth * width + child] = move;
+            if (score < 0) {
+              return child;
+            }
+          }
+        }
+        model.undo();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the slot of the next level a child with the given score goes to: a free slot, or the
+   * slot of the worst child kept if the new one is better, which is then left out.
+   *
+   * @param score the score of the child, lower being better
+   * @return the slot, or -1 if the child is left out.
+   */
+  private int place(int score) {
+    int slot;
+    if (nextSize < width) {
+      slot = nextSize++;
+      int i = heapSize++;
+      while (i > 0 && scores[heap[(i - 1) >>> 1]] < score) {
+        heap[i] = heap[(i - 1) >>> 1];
+        i = (i - 1) >>> 1;
+      }
+      heap[i] = slot;
+      scores[slot] = score;
+      return slot;
+    }
+    pruned = true;
+    slot = heap[0];
+    if (scores[slot] <= score) {
+      return -1;
+    }
+    scores[slot] = score;
+    int i = 0;
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= heapSize) {
+        break;
+      }
+      if (child + 1 < heapSize && scores[heap[child + 1]] > scores[heap[child]]) {
+        child++;
+      }
+      if (scores[heap[child]] <= score) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = slot;
+    return slot;
+  }
+
+  /**
+   * Return the moves that reach a slot of a level from the searched position.
+   *
+   * @param depth the level
+   * @param slot  the slot in the level
+   * @return the moves.
+   */
+  private long[] line(int depth, int slot) {
+    long[] line = new long[depth];
+    for (int d = depth; d > 0; d--) {
+      line[d - 1] = moves[(d - 1) * width + slot];
+      slot = parents[(d - 1) * width + slot];
+    }
+    return line;
+  }
+}
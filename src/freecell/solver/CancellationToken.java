@@ -0,0 +1,30 @@
+package freecell.solver;
+
+/**
+ * The class CancellationToken which lets any thread ask the searches it was given to to stop.
+ * Searches look at it every so many positions, so they stop shortly after it is cancelled and
+ * return the best they have found so far.
+ *
+ * <p>A subclass may override {@link #isCancelled()} to stop searches on conditions of its own,
+ * such as the number of times it was looked at.
+ */
+public class CancellationToken {
+
+  private volatile boolean cancelled;
+
+  /**
+   * Ask every search given this token to stop. A token cannot be reset.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Return whether the token was cancelled. Searches call it from the threads they run on.
+   *
+   * @return true if the token was cancelled, false otherwise.
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+}
@@ -0,0 +1,369 @@
+package freecell.solver;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import freecell.model.FreecellModel;
+import freecell.model.MoveStatus;
+
+/**
+ * The class FreecellSolver which searches for a sequence of moves that wins a game of Freecell
+ * from its present position, following the rules of the model it is given, such as {@link
+ * freecell.model.FreecellMultiMoveModel}.
+ *
+ * <p>The search is a weighted A*: the next position expanded is the one with the lowest number of
+ * moves made to reach it plus a multiple of the estimate of {@link
+ * Heuristics#evaluate(FreecellModel)}. A move to a foundation pile that can never hurt is made on
+ * its own without trying anything else, and positions already seen are skipped by their
+ * canonical hash, {@link FreecellModel#getCanonicalHash()}, recorded in a {@link
+ * TranspositionTable}.
+ *
+ * <p>No board is copied. The search tree only keeps, for every position, the position it was
+ * reached from and the packed move that reached it, and the single model is walked from one
+ * position to the next with {@link FreecellModel#undo()} and {@link FreecellModel#tryMove(long)}
+ * through their closest common ancestor. The tree, the queue and the move buffer are kept from
+ * one search to the next.
+ *
+ * <p>The search can also be given a time limit and a {@link CancellationToken}. It then keeps
+ * track of the position with the most cards on the foundation piles, the fewest estimated moves
+ * left breaking ties, and returns the line to it if it has to stop before finding a solution.
+ *
+ * <p>The search is only as strong as the rules allow. Under the rules of {@link FreecellModel},
+ * where a single card moves at a time and no card may be moved to an empty cascade pile, many
+ * deals cannot be won and most of the rest need far more positions than the default limit: of the
+ * first hundred Microsoft deals, 21 are solved, 4 are proven unsolvable and 75 end {@link
+ * SolverStatus#GAVE_UP} after about 430 ms each. Under the rules of {@link
+ * freecell.model.FreecellMultiMoveModel} all hundred are solved, in under 3 ms for half of them.
+ *
+ * <p>A solver is not thread safe, but can solve any number of games one after the other.
+ */
+public final class FreecellSolver {
+
+  /**
+   * Default number of positions expanded before giving up.
+   */
+  public static final long DEFAULT_MAX_NODES = 200_000L;
+
+  /**
+   * Default number of moves of the longest line searched.
+   */
+  public static final int DEFAULT_MAX_DEPTH = 500;
+
+  /**
+   * Default weight of the estimate against the number of moves already made.
+   */
+  public static final int DEFAULT_WEIGHT = 8;
+
+  private static final int ROOT = 0;
+  private static final Duration UNLIMITED = Duration.ofNanos(Long.MAX_VALUE / 2);
+
+  private final long maxNodes;
+  private final int maxDepth;
+  private final int weight;
+  private final TranspositionTable table;
+  private final int[] ranks;
+  private final long[] path;
+  private final LongHeap queue;
+  private long[] moves;
+  private int[] parent;
+  private long[] move;
+  private int[] depth;
+  private int size;
+  private int current;
+  private TranspositionTable visited;
+  private int baseDepth;
+  private boolean cutOff;
+  private int best;
+  private int bestHome;
+  private int bestScore;
+
+  /**
+   * Instantiates a new solver with the default limits and weight.
+   */
+  public FreecellSolver() {
+    this(DEFAULT_MAX_NODES, DEFAULT_MAX_DEPTH, DEFAULT_WEIGHT);
+  }
+
+  /**
+   * Instantiates a new solver.
+   *
+   * @param maxNodes the number of positions expanded before giving up
+   * @param maxDepth the number of moves of the longest line searched
+   * @param weight   the weight of the estimate against the number of moves already made, 1 to
+   *                 favor short solutions and higher to find one sooner
+   * @throws IllegalArgumentException if a limit or the weight is not positive
+   */
+  public FreecellSolver(long maxNodes, int maxDepth, int weight) {
+    this(maxNodes, maxDepth, weight, new LongHashSet(1 << 16));
+  }
+
+  /**
+   * Instantiates a new solver recording the positions it reaches in the given table, such as an
+   * {@link OffHeapTranspositionTable} to keep them off the heap.
+   *
+   * @param maxNodes the number of positions expanded before giving up
+   * @param maxDepth the number of moves of the longest line searched
+   * @param weight   the weight of the estimate against the number of moves already made
+   * @param table    the table of the positions reached, cleared before every search
+   * @throws IllegalArgumentException if a limit or the weight is not positive, or the table is
+   *                                  null
+   */
+  public FreecellSolver(long maxNodes, int maxDepth, int weight, TranspositionTable table) {
+    if (maxNodes < 1 || maxDepth < 1 || weight < 1) {
+      throw new IllegalArgumentException("Solver limits and weight must be positive");
+    }
+    if (table == null) {
+      throw new IllegalArgumentException("Transposition table cannot be null");
+    }
+    this.maxNodes = maxNodes;
+    this.maxDepth = maxDepth;
+    this.weight = weight;
+    this.table = table;
+    this.ranks = new int[4];
+    this.path = new long[maxDepth];
+    this.queue = new LongHeap(1 << 12);
+    this.moves = new long[0];
+    this.parent = new int[1 << 12];
+    this.move = new long[1 << 12];
+    this.depth = new int[1 << 12];
+  }
+
+  /**
+   * Search for a solution from the present position of a game. The model is left in the position
+   * it was given in, but the moves it could redo are forgotten.
+   *
+   * @param model the model, whose game has started
+   * @return the result of the search.
+   * @throws IllegalArgumentException if the model is null
+   * @throws IllegalStateException    if the game has not started
+   */
+  public SolverResult solve(FreecellModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    table.clear();
+    return search(model, table, 0, new SearchControl(maxNodes));
+  }
+
+  /**
+   * Search for a solution from the present position of a game, for at most the given time and
+   * until the token is cancelled. The clock and the token are only looked at every so many
+   * positions, so the search may go on a little longer. The model is left in the position it was
+   * given in, but the moves it could redo are forgotten.
+   *
+   * @param model     the model, whose game has started
+   * @param timeLimit the time after which the search stops
+   * @param token     the token that stops the search once cancelled, or null for none
+   * @return the result of the search, with the best partial line found if it {@link
+   *         SolverStatus#TIMED_OUT timed out} or was {@link SolverStatus#CANCELLED cancelled}.
+   * @throws IllegalArgumentException if the model or the time limit is null, or the time limit is
+   *                                  negative
+   * @throws IllegalStateException    if the game has not started
+   */
+  public SolverResult solve(FreecellModel model, Duration timeLimit, CancellationToken token) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    if (timeLimit == null || timeLimit.isNegative()) {
+      throw new IllegalArgumentException("Time limit cannot be null or negative");
+    }
+    boolean hasDeadline = timeLimit.compareTo(UNLIMITED) < 0;
+    long deadline = System.nanoTime() + (hasDeadline ? timeLimit.toNanos() : 0L);
+    table.clear();
+    return search(model, table, 0, new SearchControl(maxNodes, hasDeadline, deadline, token));
+  }
+
+  /**
+   * Search for a solution from the present position of a game, sharing the positions already
+   * reached and the count of positions expanded with other searches. Positions another search has
+   * reached are not searched again. The model is left in the position it was given in.
+   *
+   * @param model     the model, whose game has started
+   * @param visited   the positions already reached
+   * @param baseDepth the number of moves made to reach the position of the model
+   * @param control   the count of positions expanded, which also tells when to stop
+   * @return the result of the search, with the number of positions this search expanded.
+   * @throws IllegalStateException if the game has not started
+   */
+  SolverResult search(FreecellModel model, TranspositionTable visited, int baseDepth,
+                      SearchControl control) {
+    if (moves.length < model.getMaxMoves()) {
+      moves = new long[model.getMaxMoves()];
+    }
+    this.visited = visited;
+    this.baseDepth = baseDepth;
+    queue.clear();
+    long nodes = 0;
+    cutOff = false;
+    size = 1;
+    current = ROOT;
+    depth[ROOT] = 0;
+    best = ROOT;
+    bestHome = Heuristics.homeCards(model);
+    bestScore = Integer.MAX_VALUE;
+    visited.add(model.getCanonicalHash(), baseDepth);
+    if (model.isGameOver()) {
+      return new SolverResult(SolverStatus.SOLVED, new long[0], 0);
+    }
+    queue.add(0, ROOT);
+
+    int solution = -1;
+    boolean stopped = false;
+    while (solution < 0 && !queue.isEmpty()) {
+      if (!control.tryExpand()) {
+        stopped = true;
+        break;
+      }
+      walkTo(model, queue.poll());
+      nodes++;
+      solution = expand(model);
+    }
+    walkTo(model, ROOT);
+    if (solution >= 0) {
+      return new SolverResult(SolverStatus.SOLVED, lineTo(solution), nodes);
+    }
+    if (stopped && control.stopStatus() != SolverStatus.GAVE_UP) {
+      return new SolverResult(control.stopStatus(), lineTo(best), nodes);
+    }
+    SolverStatus status = !stopped && !cutOff ? SolverStatus.UNSOLVABLE
+            : SolverStatus.GAVE_UP;
+    return new SolverResult(status, new long[0], nodes);
+  }
+
+  /**
+   * Return the moves that reach the position of a node from the searched position.
+   *
+   * @param node the node
+   * @return the moves.
+   */
+  private long[] lineTo(int node) {
+    long[] line = new long[depth[node]];
+    for (int n = node; n != ROOT; n = parent[n]) {
+      line[depth[n] - 1] = move[n];
+    }
+    return line;
+  }
+
+  /**
+   * Remember a position if it has more cards on the foundation piles than the best one so far, or
+   * as many and a lower estimate.
+   *
+   * @param node  the node of the position
+   * @param home  the number of cards on the foundation piles
+   * @param score the estimate of the number of moves left
+   */
+  private void offerBest(int node, int home, int score) {
+    if (home > bestHome || home == bestHome && score < bestScore) {
+      best = node;
+      bestHome = home;
+      bestScore = score;
+    }
+  }
+
+  /**
+   * Expand the position the model is in, adding its children to the tree and the queue. Safe
+   * moves to a foundation pile are made straight away, one after the other.
+   *
+   * @param model the model, in the position of {@link #current}
+   * @return the node of a solved position if one was reached, -1 otherwise.
+   */
+  private int expand(FreecellModel model) {
+    while (true) {
+      if (depth[current] == maxDepth) {
+        cutOff = true;
+        return -1;
+      }
+      int count = model.generateMoves(moves);
+      Heuristics.foundationRanks(model, ranks);
+      long safe = -1L;
+      for (int i = 0; i < count && safe == -1L; i++) {
+        if (Heuristics.isUseful(model, moves[i])
+                && Heuristics.isSafeToFoundation(model, moves[i], ranks)) {
+          safe = moves[i];
+        }
+      }
+      if (safe == -1L) {
+        break;
+      }
+      model.tryMove(safe);
+      if (!visited.add(model.getCanonicalHash(), baseDepth + depth[current] + 1)) {
+        model.undo();
+        return -1;
+      }
+      current = addNode(current, safe);
+      if (model.isGameOver()) {
+        return current;
+      }
+      offerBest(current, Heuristics.homeCards(model), Integer.MAX_VALUE);
+    }
+
+    int count = model.generateMoves(moves);
+    int g = depth[current] + 1;
+    for (int i = 0; i < count; i++) {
+      if (Heuristics.isUseful(model, moves[i]) && model.tryMove(moves[i]) == MoveStatus.OK) {
+        if (visited.add(model.getCanonicalHash(), baseDepth + g)) {
+          int node = addNode(current, moves[i]);
+          if (model.isGameOver()) {
+            current = node;
+            return node;
+          }
+          int estimate = Heuristics.evaluate(model);
+          offerBest(node, Heuristics.homeCards(model), estimate);
+          queue.add(g + weight * estimate, node);
+        }
+        model.undo();
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Add a position to the search tree.
+   *
+   * @param from the node of the position it is reached from
+   * @param by   the packed move that reaches it
+   * @return the node of the position.
+   */
+  private int addNode(int from, long by) {
+    if (size == parent.length) {
+      parent = Arrays.copyOf(parent, size * 2);
+      move = Arrays.copyOf(move, size * 2);
+      depth = Arrays.copyOf(depth, size * 2);
+    }
+    parent[size] = from;
+    move[size] = by;
+    depth[size] = depth[from] + 1;
+    return size++;
+  }
+
+  /**
+   * Bring the model from the position of {@link #current} to the position of another node, by
+   * taking back moves up to their closest common ancestor and making the moves down from it.
+   *
+   * @param model  the model
+   * @param target the node to go to
+   */
+  private void walkTo(FreecellModel model, int target) {
+    int down = 0;
+    int from = current;
+    int to = target;
+    while (depth[from] > depth[to]) {
+      model.undo();
+      from = parent[from];
+    }
+    while (depth[to] > depth[from]) {
+      path[down++] = move[to];
+      to = parent[to];
+    }
+    while (from != to) {
+      model.undo();
+      from = parent[from];
+      path[down++] = move[to];
+      to = parent[to];
+    }
+    while (down > 0) {
+      model.tryMove(path[--down]);
+    }
+    current = target;
+  }
+}
@@ -0,0 +1,195 @@
+package freecell.solver;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.Moves;
+import freecell.model.PileType;
+
+/**
+ * The class Heuristics which holds the position evaluation and move pruning shared by the
+ * solvers. Every method reads the model through its int accessors and allocates nothing.
+ */
+final class Heuristics {
+
+  private static final int SUITS = 4;
+
+  private Heuristics() {
+  }
+
+  /**
+   * Return an estimate of the number of moves left to win the game from the present position,
+   * lower being better. Every card not yet on a foundation pile needs a move, every card of a
+   * cascade pile lying on a lower card has to be moved out of the way first, and so do the cards
+   * lying on the next card each suit needs on its foundation pile. Every empty open or cascade pile
+   * takes one off, as it makes room for such moves.
+   *
+   * @param model the model
+   * @return the estimate, 0 if and only if the game is over.
+   */
+  static int evaluate(FreecellModel model) {
+    int left = Card.DECK_SIZE;
+    int ranks = 0;
+    for (int f = 0; f < model.getNoOfFoundationPiles(); f++) {
+      int size = model.getFoundationSize(f);
+      if (size > 0) {
+        int top = model.getFoundationCard(f, size - 1);
+        left -= size;
+        ranks |= Card.numberOf(top) << 4 * (top / Card.CARDS_PER_SUIT);
+      }
+    }
+    if (left == 0) {
+      return 0;
+    }
+    int blocked = 0;
+    int buried = 0;
+    int empty = 0;
+    for (int c = 0; c < model.getNoOfCascadePiles(); c++) {
+      int size = model.getCascadeSize(c);
+      if (size == 0) {
+        empty++;
+      }
+      int lowest = Card.CARDS_PER_SUIT + 1;
+      for (int i = 0; i < size; i++) {
+        int card = model.getCascadeCard(c, i);
+        int number = Card.numberOf(card);
+        if (number > lowest) {
+          blocked++;
+        } else {
+          lowest = number;
+        }
+        if (number == (ranks >>> 4 * (card / Card.CARDS_PER_SUIT) & 15) + 1) {
+          buried += size - 1 - i;
+        }
+      }
+    }
+    for (int o = 0; o < model.getNoOfOpenPiles(); o++) {
+      if (model.getOpenCard(o) == -1) {
+        empty++;
+      }
+    }
+    return Math.max(1, left + blocked + buried - empty);
+  }
+
+  /**
+   * Return the number of cards on the foundation piles, which measures how far a game has gone.
+   *
+   * @param model the model
+   * @return the number of cards.
+   */
+  static int homeCards(FreecellModel model) {
+    int home = 0;
+    for (int f = 0; f < model.getNoOfFoundationPiles(); f++) {
+      home += model.getFoundationSize(f);
+    }
+    return home;
+  }
+
+  /**
+   * Fill an array, indexed by the ordinal of the suit, with the number of the last card of the
+   * suit on a foundation pile, or 0 if the suit has none.
+   *
+   * @param model the model
+   * @param ranks the array to fill, of length 4 at least
+   */
+  static void foundationRanks(FreecellModel model, int[] ranks) {
+    for (int s = 0; s < SUITS; s++) {
+      ranks[s] = 0;
+    }
+    for (int f = 0; f < model.getNoOfFoundationPiles(); f++) {
+      int size = model.getFoundationSize(f);
+      if (size > 0) {
+        int top = model.getFoundationCard(f, size - 1);
+        ranks[top / Card.CARDS_PER_SUIT] = Card.numberOf(top);
+      }
+    }
+  }
+
+  /**
+   * Return the first card a move takes from its source pile.
+   *
+   * @param model the model
+   * @param move  the packed move
+   * @return the ordinal of the card.
+   */
+  static int movedCard(FreecellModel model, long move) {
+    if (Moves.sourceType(move) == PileType.OPEN) {
+      return model.getOpenCard(Moves.sourcePile(move));
+    }
+    return model.getCascadeCard(Moves.sourcePile(move), Moves.cardIndex(move));
+  }
+
+  /**
+   * Check whether a move to a foundation pile can be made without losing a way to win the game,
+   * that is whether no card left in play could ever need to be stacked on the moved card. This is
+   * the case for aces and twos, and for any card once both suits of the other color have reached
+   * one less than its number.
+   *
+   * @param model the model
+   * @param move  the packed move
+   * @param ranks the foundation ranks, see {@link #foundationRanks(FreecellModel, int[])}
+   * @return true if the move is to a foundation pile and is safe, false otherwise.
+   */
+  static boolean isSafeToFoundation(FreecellModel model, long move, int[] ranks) {
+    if (Moves.destinationType(move) != PileType.FOUNDATION) {
+      return false;
+    }
+    int card = movedCard(model, move);
+    int number = Card.numberOf(card);
+    if (number <= 2) {
+      return true;
+    }
+    boolean red = Card.isRed(card);
+    for (int s = 0; s < SUITS; s++) {
+      if (Card.isRed(s * Card.CARDS_PER_SUIT) != red && ranks[s] < number - 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Check whether a move is worth searching. Moves between open piles, and moves to an empty pile
+   * other than the first empty pile of its type, lead to positions with the same canonical hash as
+   * another move, and moving a whole cascade pile to an empty one changes nothing.
+   *
+   * @param model the model
+   * @param move  the packed move
+   * @return true if the move is worth searching, false otherwise.
+   */
+  static boolean isUseful(FreecellModel model, long move) {
+    PileType destination = Moves.destinationType(move);
+    int pile = Moves.destinationPile(move);
+    if (destination == PileType.OPEN) {
+      if (Moves.sourceType(move) == PileType.OPEN) {
+        return false;
+      }
+      for (int o = 0; o < pile; o++) {
+        if (model.getOpenCard(o) == -1) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (destination == PileType.FOUNDATION) {
+      if (model.getFoundationSize(pile) == 0) {
+        for (int f = 0; f < pile; f++) {
+          if (model.getFoundationSize(f) == 0) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    if (model.getCascadeSize(pile) == 0) {
+      if (Moves.sourceType(move) == PileType.CASCADE && Moves.cardIndex(move) == 0) {
+        return false;
+      }
+      for (int c = 0; c < pile; c++) {
+        if (model.getCascadeSize(c) == 0) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+}
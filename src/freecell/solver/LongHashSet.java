@@ -0,0 +1,132 @@
+package freecell.solver;
+
+import java.util.Arrays;
+
+/**
+ * The class LongHashSet which is a set of position hashes kept in a single long array with linear
+ * probing, so that searching a position allocates nothing and stores no boxed value. The array
+ * doubles when it is half full, so no position is ever forgotten, and depths are ignored. It is
+ * the table of a single-threaded search.
+ */
+final class LongHashSet implements TranspositionTable {
+
+  /**
+   * Value of an unused slot. Whether the hash 0 is in the set is kept apart.
+   */
+  private static final long FREE = 0L;
+
+  private long[] slots;
+  private int mask;
+  private int size;
+  private boolean hasFree;
+
+  /**
+   * Instantiates a new set with room for about the given number of hashes before it grows.
+   *
+   * @param expected the expected number of hashes
+   */
+  LongHashSet(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+    this.slots = new long[capacity];
+    this.mask = capacity - 1;
+  }
+
+  @Override
+  public boolean add(long hash, int depth) {
+    return add(hash);
+  }
+
+  /**
+   * Add a hash to the set.
+   *
+   * @param hash the hash
+   * @return true if the hash was not in the set already, false otherwise.
+   */
+  boolean add(long hash) {
+    if (hash == FREE) {
+      if (hasFree) {
+        return false;
+      }
+      hasFree = true;
+      size++;
+      return true;
+    }
+    int i = index(hash);
+    while (slots[i] != FREE) {
+      if (slots[i] == hash) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    slots[i] = hash;
+    if (++size * 2 > slots.length) {
+      grow();
+    }
+    return true;
+  }
+
+  /**
+   * Return whether a hash is in the set.
+   *
+   * @param hash the hash
+   * @return true if the hash is in the set, false otherwise.
+   */
+  boolean contains(long hash) {
+    if (hash == FREE) {
+      return hasFree;
+    }
+    for (int i = index(hash); slots[i] != FREE; i = (i + 1) & mask) {
+      if (slots[i] == hash) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Return the number of hashes in the set.
+   *
+   * @return the number of hashes.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Remove every hash from the set, keeping its array.
+   */
+  @Override
+  public void clear() {
+    Arrays.fill(slots, FREE);
+    size = 0;
+    hasFree = false;
+  }
+
+  /**
+   * Return the slot a hash is first looked for at.
+   *
+   * @param hash the hash
+   * @return the index of the slot.
+   */
+  private int index(long hash) {
+    return (int) (hash ^ hash >>> 32) & mask;
+  }
+
+  /**
+   * Double the array and put every hash back.
+   */
+  private void grow() {
+    long[] old = slots;
+    slots = new long[old.length * 2];
+    mask = slots.length - 1;
+    for (long hash : old) {
+      if (hash != FREE) {
+        int i = index(hash);
+        while (slots[i] != FREE) {
+          i = (i + 1) & mask;
+        }
+        slots[i] = hash;
+      }
+    }
+  }
+}
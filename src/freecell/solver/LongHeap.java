@@ -0,0 +1,91 @@
+package freecell.solver;
+
+import java.util.Arrays;
+
+/**
+ * The class LongHeap which is a priority queue of search nodes, each kept with its priority in a
+ * single long of a binary heap so that adding and polling allocates nothing. Of two nodes with
+ * the same priority, the one added last is polled first.
+ */
+final class LongHeap {
+
+  private long[] heap;
+  private int size;
+
+  /**
+   * Instantiates a new queue with room for the given number of nodes before it grows.
+   *
+   * @param capacity the initial capacity
+   */
+  LongHeap(int capacity) {
+    this.heap = new long[Math.max(capacity, 2)];
+  }
+
+  /**
+   * Add a node to the queue.
+   *
+   * @param priority the priority, lowest first, from 0 to {@link Integer#MAX_VALUE}
+   * @param node     the node, from 0 to {@link Integer#MAX_VALUE}
+   */
+  void add(int priority, int node) {
+    if (size == heap.length) {
+      heap = Arrays.copyOf(heap, size * 2);
+    }
+    long entry = (long) priority << 32 | (Integer.MAX_VALUE - node);
+    int i = size++;
+    while (i > 0) {
+      int up = (i - 1) >>> 1;
+      if (heap[up] <= entry) {
+        break;
+      }
+      heap[i] = heap[up];
+      i = up;
+    }
+    heap[i] = entry;
+  }
+
+  /**
+   * Remove the node with the lowest priority from the queue.
+   *
+   * @return the node.
+   * @throws java.util.NoSuchElementException if the queue is empty
+   */
+  int poll() {
+    if (size == 0) {
+      throw new java.util.NoSuchElementException("Queue is empty");
+    }
+    long top = heap[0];
+    long last = heap[--size];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child]) {
+        child++;
+      }
+      if (last <= heap[child]) {
+        break;
+      }
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return Integer.MAX_VALUE - (int) top;
+  }
+
+  /**
+   * Return whether the queue is empty.
+   *
+   * @return true if the queue holds no node, false otherwise.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Remove every node from the queue, keeping its array.
+   */
+  void clear() {
+    size = 0;
+  }
+}
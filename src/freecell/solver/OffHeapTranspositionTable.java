@@ -0,0 +1,206 @@
+package freecell.solver;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The class OffHeapTranspositionTable which is a fixed-capacity transposition table stored outside
+ * the Java heap, in a direct {@link ByteBuffer}, so that a search over millions of positions does
+ * not grow the heap nor give the garbage collector anything to scan.
+ *
+ * <p>Every entry is two longs: the whole 64-bit hash of the position, and a word holding 8 bits of
+ * generation and, in the low 16 bits, one more than the depth it was reached at, so that 0 marks
+ * an entry being written. As the whole hash is kept, a position is only taken for another one
+ * if their hashes are equal, and a search using the table reports a deal unsolvable as soundly as
+ * one keeping its positions in a hash set. Clearing the table only moves it to the next
+ * generation, and entries of older generations count as free, so the memory is wiped only once
+ * every 255 clears. A position may go in any of the {@value #PROBES} slots following the one its
+ * hash designates.
+ *
+ * <p>A slot is taken by a compare-and-set of its second word to the generation alone, then its
+ * hash is written and its depth published, and a thread finding a slot being written waits for
+ * it, so any number of threads can add positions at the same time without locking and a position
+ * is reported new to only one of them. A position reached again keeps the smallest depth it was
+ * reached at. When all of its slots are taken by other positions the {@link ReplacementPolicy}
+ * decides whether one of them is forgotten.
+ */
+public final class OffHeapTranspositionTable implements TranspositionTable {
+
+  /**
+   * Default number of entries, taking 32 MB.
+   */
+  public static final int DEFAULT_CAPACITY = 1 << 21;
+
+  /**
+   * Largest number of entries, taking 1 GB, the most a direct buffer can hold in powers of two.
+   */
+  public static final int MAX_CAPACITY = 1 << 26;
+
+  private static final int PROBES = 8;
+  private static final int ENTRY_BYTES = 2 * Long.BYTES;
+  private static final int GENERATION_SHIFT = 16;
+  private static final int MAX_GENERATION = 0xff;
+  private static final long GENERATION_MASK = (long) MAX_GENERATION << GENERATION_SHIFT;
+  private static final int DEPTH_MASK = 0xffff;
+  private static final int MAX_DEPTH = 0xfffe;
+  private static final VarHandle ENTRIES = MethodHandles.byteBufferViewVarHandle(long[].class,
+          ByteOrder.nativeOrder());
+
+  private final ByteBuffer entries;
+  private final int mask;
+  private final ReplacementPolicy policy;
+  private final LongAdder size;
+  private volatile int generation;
+
+  /**
+   * Instantiates a new table with the default capacity, keeping the shallowest positions.
+   */
+  public OffHeapTranspositionTable() {
+    this(DEFAULT_CAPACITY, ReplacementPolicy.DEPTH_PREFERRED);
+  }
+
+  /**
+   * Instantiates a new table.
+   *
+   * @param capacity the number of entries, a power of two from {@value #PROBES} to {@link
+   *                 #MAX_CAPACITY}
+   * @param policy   what to do with a new position when its slots are taken
+   * @throws IllegalArgumentException if the capacity is not a power of two in range or the policy
+   *                                  is null
+   */
+  public OffHeapTranspositionTable(int capacity, ReplacementPolicy policy) {
+    if (capacity < PROBES || capacity > MAX_CAPACITY || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Invalid table capacity");
+    }
+    if (policy == null) {
+      throw new IllegalArgumentException("Replacement policy cannot be null");
+    }
+    this.entries = ByteBuffer.allocateDirect((int) memoryFor(capacity))
+            .order(ByteOrder.nativeOrder());
+    this.mask = capacity - 1;
+    this.policy = policy;
+    this.size = new LongAdder();
+    this.generation = 1;
+  }
+
+  /**
+   * Return the number of bytes of memory outside the heap a table of the given capacity takes.
+   *
+   * @param capacity the number of entries
+   * @return the number of bytes.
+   */
+  public static long memoryFor(int capacity) {
+    return (long) capacity * ENTRY_BYTES;
+  }
+
+  @Override
+  public boolean add(long hash, int depth) {
+    int stored = Math.min(Math.max(depth, 0), MAX_DEPTH) + 1;
+    long writing = (long) generation << GENERATION_SHIFT;
+    long entry = writing | stored;
+    int home = (int) (hash ^ hash >>> 32) & mask;
+
+    int victim = -1;
+    long victimEntry = 0;
+    for (int probe = 0; probe < PROBES; probe++) {
+      int offset = ((home + probe) & mask) * ENTRY_BYTES;
+      long current = published(offset);
+      while (true) {
+        if ((current & GENERATION_MASK) != writing) {
+          if (ENTRIES.compareAndSet(entries, offset + Long.BYTES, current, writing)) {
+            write(offset, hash, entry);
+            size.increment();
+            return true;
+          }
+        } else if ((long) ENTRIES.getAcquire(entries, offset) == hash) {
+          if ((current & DEPTH_MASK) <= stored
+                  || ENTRIES.compareAndSet(entries, offset + Long.BYTES, current, entry)) {
+            return false;
+          }
+        } else {
+          break;
+        }
+        current = published(offset);
+      }
+      if (victim < 0 || policy == ReplacementPolicy.DEPTH_PREFERRED
+              && (current & DEPTH_MASK) > (victimEntry & DEPTH_MASK)) {
+        victim = offset;
+        victimEntry = current;
+      }
+    }
+    if ((policy == ReplacementPolicy.ALWAYS_REPLACE
+            || policy == ReplacementPolicy.DEPTH_PREFERRED
+            && (victimEntry & DEPTH_MASK) >= stored)
+            && ENTRIES.compareAndSet(entries, victim + Long.BYTES, victimEntry, writing)) {
+      write(victim, hash, entry);
+    }
+    return true;
+  }
+
+  /**
+   * Return the second word of a slot, waiting for the slot to be written if it is being written.
+   *
+   * @param offset the offset of the slot
+   * @return the generation and depth of the slot.
+   */
+  private long published(int offset) {
+    long writing = (long) generation << GENERATION_SHIFT;
+    while (true) {
+      long current = (long) ENTRIES.getAcquire(entries, offset + Long.BYTES);
+      if (current != writing) {
+        return current;
+      }
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * Write the hash of a slot taken by the present thread, then publish its depth.
+   *
+   * @param offset the offset of the slot
+   * @param hash   the hash of the position
+   * @param entry  the generation and depth of the position
+   */
+  private void write(int offset, long hash, long entry) {
+    ENTRIES.setRelease(entries, offset, hash);
+    ENTRIES.setRelease(entries, offset + Long.BYTES, entry);
+  }
+
+  /**
+   * Remove every position from the table. It must not be called while positions are being added.
+   */
+  @Override
+  public void clear() {
+    if (generation == MAX_GENERATION) {
+      for (int offset = 0; offset < entries.capacity(); offset += Long.BYTES) {
+        entries.putLong(offset, 0L);
+      }
+      generation = 1;
+    } else {
+      generation = generation + 1;
+    }
+    size.reset();
+  }
+
+  /**
+   * Return the number of entries of the table.
+   *
+   * @return the capacity.
+   */
+  public int capacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Return the number of slots filled since the table was created or last cleared. Replaced
+   * positions are not counted again.
+   *
+   * @return the number of filled slots.
+   */
+  public long size() {
+    return size.sum();
+  }
+}
@@ -0,0 +1,252 @@
+package freecell.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import freecell.model.FreecellModel;
+import freecell.model.MoveStatus;
+
+/**
+ * The class ParallelFreecellSolver which searches for a solution on every core, splitting the
+ * search tree across the workers of a {@link ForkJoinPool}.
+ *
+ * <p>The first levels of the tree are expanded by tasks that fork one task per child position,
+ * best first, on a copy of the model. Below {@link #DEFAULT_SPLIT_DEPTH} levels every task runs
+ * the search of {@link FreecellSolver} on its own copy. Idle workers steal the tasks left, and all
+ * of them share one {@link TranspositionTable} of the positions already reached, by default an
+ * {@link OffHeapTranspositionTable}, so a position is searched by a single worker. As soon as any
+ * worker finds a solution every other one stops.
+ *
+ * <p>How much faster than {@link FreecellSolver} it is depends on the number of cores and is
+ * measured by {@code freecell.bench.SolverStress}. On a single worker it solves the same deals in
+ * about one and a half times the time, the cost of the copies of the model and of the shared
+ * table.
+ *
+ * <p>A solver owns its pool and is thread safe, solving one game at a time on all its workers. It
+ * should be closed once no longer needed.
+ */
+public final class ParallelFreecellSolver implements AutoCloseable {
+
+  /**
+   * Default number of levels of the search tree split into tasks.
+   */
+  public static final int DEFAULT_SPLIT_DEPTH = 2;
+
+  private final ForkJoinPool pool;
+  private final long maxNodes;
+  private final int splitDepth;
+  private final TranspositionTable table;
+  private final ThreadLocal<FreecellSolver> workers;
+
+  /**
+   * Instantiates a new solver with one worker per available processor and the default limits of
+   * {@link FreecellSolver}.
+   */
+  public ParallelFreecellSolver() {
+    this(Runtime.getRuntime().availableProcessors(), FreecellSolver.DEFAULT_MAX_NODES,
+            FreecellSolver.DEFAULT_MAX_DEPTH, FreecellSolver.DEFAULT_WEIGHT);
+  }
+
+  /**
+   * Instantiates a new solver.
+   *
+   * @param parallelism the number of workers
+   * @param maxNodes    the number of positions expanded by all workers together before giving up
+   * @param maxDepth    the number of moves of the longest line searched by a worker
+   * @param weight      the weight of the estimate against the number of moves already made
+   * @throws IllegalArgumentException if a number is not positive
+   */
+  public ParallelFreecellSolver(int parallelism, long maxNodes, int maxDepth, int weight) {
+    this(parallelism, maxNodes, maxDepth, weight, new OffHeapTranspositionTable());
+  }
+
+  /**
+   * Instantiates a new solver recording the positions its workers reach in the given table, which
+   * has to be safe for concurrent use.
+   *
+   * @param parallelism the number of workers
+   * @param maxNodes    the number of positions expanded by all workers together before giving up
+   * @param maxDepth    the number of moves of the longest line searched by a worker
+   * @param weight      the weight of the estimate against the number of moves already made
+   * @param table       the table of the positions reached, cleared before every search
+   * @throws IllegalArgumentException if a number is not positive or the table is null
+   */
+  public ParallelFreecellSolver(int parallelism, long maxNodes, int maxDepth, int weight,
+                                TranspositionTable table) {
+    if (parallelism < 1 || maxNodes < 1 || maxDepth < 1 || weight < 1) {
+      throw new IllegalArgumentException("Solver limits and weight must be positive");
+    }
+    if (table == null) {
+      throw new IllegalArgumentException("Transposition table cannot be null");
+    }
+    this.pool = new ForkJoinPool(parallelism);
+    this.maxNodes = maxNodes;
+    this.splitDepth = DEFAULT_SPLIT_DEPTH;
+    this.table = table;
+    this.workers = ThreadLocal.withInitial(() -> new FreecellSolver(maxNodes, maxDepth, weight));
+  }
+
+  /**
+   * Search for a solution from the present position of a game. The model is not changed, the
+   * workers search copies of it.
+   *
+   * @param model the model, whose game has started
+   * @return the result of the search, with the number of positions expanded by all workers.
+   * @throws IllegalArgumentException if the model is null
+   * @throws IllegalStateException    if the game has not started
+   */
+  public synchronized SolverResult solve(FreecellModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model cannot be null");
+    }
+    if (!model.isGameStarted()) {
+      throw new IllegalStateException("Game not started yet so cannot be solved.");
+    }
+    table.clear();
+    Search search = new Search(table, new SearchControl(maxNodes));
+    search.visited.add(model.getCanonicalHash(), 0);
+    if (model.isGameOver()) {
+      return new SolverResult(SolverStatus.SOLVED, new long[0], 0);
+    }
+    long[] line = pool.invoke(new SolveTask(search, model.copy(), new long[0], 0));
+    long nodes = search.control.getNodes();
+    if (line != null) {
+      return new SolverResult(SolverStatus.SOLVED, line, nodes);
+    }
+    return new SolverResult(search.gaveUp ? SolverStatus.GAVE_UP : SolverStatus.UNSOLVABLE,
+            new long[0], nodes);
+  }
+
+  /**
+   * Shut the pool of workers down. Searches already running are completed.
+   */
+  @Override
+  public void close() {
+    pool.shutdown();
+  }
+
+  /**
+   * The state one search shares between its tasks.
+   */
+  private static final class Search {
+
+    private final TranspositionTable visited;
+    private final SearchControl control;
+    private volatile boolean gaveUp;
+
+    /**
+     * Instantiates a new search.
+     *
+     * @param visited the positions already reached
+     * @param control the count of positions expanded
+     */
+    private Search(TranspositionTable visited, SearchControl control) {
+      this.visited = visited;
+      this.control = control;
+    }
+  }
+
+  /**
+   * The task which searches the subtree of one position, on its own copy of the model.
+   */
+  private final class SolveTask extends RecursiveTask<long[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Search search;
+    private final FreecellModel model;
+    private final long[] line;
+    private final int level;
+
+    /**
+     * Instantiates a new task.
+     *
+     * @param search the search the task is part of
+     * @param model  the copy of the model, in the position to search
+     * @param line   the moves that reach the position from the searched one
+     * @param level  the number of levels of the tree split above the position
+     */
+    private SolveTask(Search search, FreecellModel model, long[] line, int level) {
+      this.search = search;
+      this.model = model;
+      this.line = line;
+      this.level = level;
+    }
+
+    /**
+     * Search the subtree of the position.
+     *
+     * @return the moves of a solution from the searched position, or null if none was found.
+     */
+    @Override
+    protected long[] compute() {
+      if (search.control.isStopped()) {
+        return null;
+      }
+      if (level >= splitDepth) {
+        SolverResult result = workers.get().search(model, search.visited, line.length,
+                search.control);
+        if (result.isSolved()) {
+          search.control.stop();
+          return concat(line, result.getMoves());
+        }
+        if (result.getStatus() == SolverStatus.GAVE_UP) {
+          search.gaveUp = true;
+        }
+        return null;
+      }
+      if (!search.control.tryExpand()) {
+        search.gaveUp = true;
+        return null;
+      }
+
+      long[] moves = new long[model.getMaxMoves()];
+      int count = model.generateMoves(moves);
+      List<SolveTask> children = new ArrayList<>();
+      List<Integer> scores = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        if (Heuristics.isUseful(model, moves[i]) && model.tryMove(moves[i]) == MoveStatus.OK) {
+          if (search.visited.add(model.getCanonicalHash(), line.length + 1)) {
+            long[] childLine = concat(line, moves[i]);
+            if (model.isGameOver()) {
+              search.control.stop();
+              return childLine;
+            }
+            int score = Heuristics.evaluate(model);
+            int j = 0;
+            while (j < scores.size() && scores.get(j) <= score) {
+              j++;
+            }
+            scores.add(j, score);
+            children.add(j, new SolveTask(search, model.copy(), childLine, level + 1));
+          }
+          model.undo();
+        }
+      }
+      invokeAll(children);
+      for (SolveTask child : children) {
+        long[] solution = child.join();
+        if (solution != null) {
+          return solution;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Return the moves of a line followed by more moves.
+   *
+   * @param line  the moves of the line
+   * @param moves the moves to add
+   * @return the moves of the longer line.
+   */
+  private static long[] concat(long[] line, long... moves) {
+    long[] longer = Arrays.copyOf(line, line.length + moves.length);
+    System.arraycopy(moves, 0, longer, line.length, moves.length);
+    return longer;
+  }
+}
@@ -0,0 +1,21 @@
+package freecell.solver;
+
+/**
+ * The enum freecell.solver.ReplacementPolicy, what a fixed-capacity {@link TranspositionTable}
+ * does with a new position when every slot it may go in is taken.
+ */
+public enum ReplacementPolicy {
+  /**
+   * The positions in the table are kept and the new one is not recorded.
+   */
+  KEEP_EXISTING,
+  /**
+   * The new position takes the place of the first position of its slots.
+   */
+  ALWAYS_REPLACE,
+  /**
+   * The new position takes the place of the deepest position of its slots, if that position was
+   * reached after at least as many moves.
+   */
+  DEPTH_PREFERRED
+}
@@ -0,0 +1,124 @@
+package freecell.solver;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class SearchControl which counts the positions expanded by one search, whatever the number
+ * of threads it runs on, and lets any of them stop the others. The deadline and the cancellation
+ * token of the search are only looked at once every {@value #CHECK_INTERVAL} positions, so that
+ * the clock is not read for every position.
+ */
+final class SearchControl {
+
+  private static final int CHECK_INTERVAL = 1024;
+
+  private final long maxNodes;
+  private final boolean hasDeadline;
+  private final long deadline;
+  private final CancellationToken token;
+  private final AtomicLong nodes;
+  private final AtomicBoolean stopped;
+  private volatile SolverStatus reason;
+
+  /**
+   * Instantiates a new control without deadline nor cancellation token.
+   *
+   * @param maxNodes the number of positions expanded before the search stops
+   */
+  SearchControl(long maxNodes) {
+    this(maxNodes, false, 0L, null);
+  }
+
+  /**
+   * Instantiates a new control.
+   *
+   * @param maxNodes    the number of positions expanded before the search stops
+   * @param hasDeadline whether the search stops at the deadline
+   * @param deadline    the value of {@link System#nanoTime()} the search stops at
+   * @param token       the token that stops the search once cancelled, or null
+   */
+  SearchControl(long maxNodes, boolean hasDeadline, long deadline, CancellationToken token) {
+    this.maxNodes = maxNodes;
+    this.hasDeadline = hasDeadline;
+    this.deadline = deadline;
+    this.token = token;
+    this.nodes = new AtomicLong();
+    this.stopped = new AtomicBoolean();
+    this.reason = SolverStatus.GAVE_UP;
+  }
+
+  /**
+   * Count a position about to be expanded, unless the search is stopped, has expanded as many
+   * positions as it may, has run out of time or was cancelled.
+   *
+   * @return true if the position may be expanded, false if the search has to stop.
+   */
+  boolean tryExpand() {
+    if (stopped.get()) {
+      return false;
+    }
+    long n = nodes.incrementAndGet();
+    if (n > maxNodes) {
+      nodes.decrementAndGet();
+      return false;
+    }
+    if ((n & (CHECK_INTERVAL - 1)) == 1) {
+      if (token != null && token.isCancelled()) {
+        stop(SolverStatus.CANCELLED);
+        return false;
+      }
+      if (hasDeadline && System.nanoTime() - deadline >= 0) {
+        stop(SolverStatus.TIMED_OUT);
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stop the search on every thread.
+   */
+  void stop() {
+    stopped.set(true);
+  }
+
+  /**
+   * Stop the search on every thread for the given reason.
+   *
+   * @param why the status the search ends with
+   */
+  private void stop(SolverStatus why) {
+    reason = why;
+    stopped.set(true);
+  }
+
+  /**
+   * Return whether the search was stopped.
+   *
+   * @return true if the search was stopped, false otherwise.
+   */
+  boolean isStopped() {
+    return stopped.get();
+  }
+
+  /**
+   * Return the status of a search that stopped without a solution: {@link
+   * SolverStatus#TIMED_OUT}, {@link SolverStatus#CANCELLED} or otherwise {@link
+   * SolverStatus#GAVE_UP}.
+   *
+   * @return the status.
+   */
+  SolverStatus stopStatus() {
+    return reason;
+  }
+
+  /**
+   * Return the number of positions expanded so far.
+   *
+   * @return the number of positions.
+   */
+  long getNodes() {
+    return nodes.get();
+  }
+}
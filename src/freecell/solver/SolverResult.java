@@ -0,0 +1,96 @@
+package freecell.solver;
+
+import freecell.model.Moves;
+
+/**
+ * The class SolverResult which holds the outcome of a search: its status, the moves of the
+ * solution packed as described in {@link Moves}, and the number of positions searched.
+ */
+public final class SolverResult {
+
+  private final SolverStatus status;
+  private final long[] moves;
+  private final long nodes;
+
+  /**
+   * Instantiates a new result.
+   *
+   * @param status the status of the search
+   * @param moves  the moves of the solution, or of the best partial line of a search that timed
+   *               out or was cancelled, and empty otherwise
+   * @param nodes  the number of positions searched
+   * @throws IllegalArgumentException if the status or the moves are null
+   */
+  public SolverResult(SolverStatus status, long[] moves, long nodes) {
+    if (status == null || moves == null) {
+      throw new IllegalArgumentException("Status and moves cannot be null");
+    }
+    this.status = status;
+    this.moves = moves.clone();
+    this.nodes = nodes;
+  }
+
+  /**
+   * Return the status of the search.
+   *
+   * @return the status.
+   */
+  public SolverStatus getStatus() {
+    return status;
+  }
+
+  /**
+   * Return whether a solution was found.
+   *
+   * @return true if the game is solved, false otherwise.
+   */
+  public boolean isSolved() {
+    return status == SolverStatus.SOLVED;
+  }
+
+  /**
+   * Return the moves of the solution, each packed as described in {@link Moves}. Replaying them in
+   * order with {@link freecell.model.FreecellOperations#move} from the searched position wins the
+   * game. When the search {@link SolverStatus#TIMED_OUT timed out} or was {@link
+   * SolverStatus#CANCELLED cancelled} they are the line that got the most cards to the foundation
+   * piles instead, which may be empty.
+   *
+   * @return a copy of the moves, empty if the search ended any other way without a solution.
+   */
+  public long[] getMoves() {
+    return moves.clone();
+  }
+
+  /**
+   * Return the number of moves of the solution.
+   *
+   * @return the number of moves.
+   */
+  public int getMoveCount() {
+    return moves.length;
+  }
+
+  /**
+   * Return the number of positions searched.
+   *
+   * @return the number of positions.
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Return the result in the form of a string, the status followed by the moves, one per line.
+   *
+   * @return the result as a string.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(status.toString());
+    sb.append(" in ").append(moves.length).append(" moves, ").append(nodes).append(" nodes");
+    for (long move : moves) {
+      sb.append('\n').append(Moves.toString(move));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,29 @@
+package freecell.solver;
+
+/**
+ * The enum freecell.solver.SolverStatus, the outcome of a search for the solution of a game.
+ */
+public enum SolverStatus {
+  /**
+   * A solution was found.
+   */
+  SOLVED,
+  /**
+   * Every reachable position was searched and none of them is solved.
+   */
+  UNSOLVABLE,
+  /**
+   * The search stopped at one of its limits before finding a solution.
+   */
+  GAVE_UP,
+  /**
+   * The search ran out of time before finding a solution. The result holds the best partial line
+   * found.
+   */
+  TIMED_OUT,
+  /**
+   * The search was cancelled before finding a solution. The result holds the best partial line
+   * found.
+   */
+  CANCELLED
+}
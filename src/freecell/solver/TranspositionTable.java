@@ -0,0 +1,23 @@
+package freecell.solver;
+
+/**
+ * The interface of the table of positions a search has already reached, keyed by their 64-bit
+ * hash, so that a position reached again through other moves is not searched twice. A table may
+ * forget positions when it is full, in which case they are searched again.
+ */
+public interface TranspositionTable {
+
+  /**
+   * Record that a position was reached after the given number of moves.
+   *
+   * @param hash  the hash of the position
+   * @param depth the number of moves made to reach it from the searched position
+   * @return true if the position was not in the table, false otherwise.
+   */
+  boolean add(long hash, int depth);
+
+  /**
+   * Remove every position from the table.
+   */
+  void clear();
+}
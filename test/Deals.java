@@ -0,0 +1,32 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+
+/**
+ * The class Deals which deals the games the tests of the solver and of the hint engine are run
+ * on.
+ */
+final class Deals {
+
+  private Deals() {
+  }
+
+  /**
+   * Deal a multi move game with a deck shuffled by the given seed.
+   *
+   * @param seed the seed of the shuffle
+   * @return the model.
+   */
+  static FreecellModel deal(long seed) {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    List<Card> deck = new ArrayList<>(model.getDeck());
+    Collections.shuffle(deck, new Random(seed));
+    model.startGame(deck, false);
+    return model;
+  }
+}
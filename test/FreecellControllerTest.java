@@ -0,0 +1,318 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import freecell.controller.FreecellController;
+import freecell.model.Card;
+import freecell.model.DealGenerator;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.Moves;
+import freecell.solver.FreecellSolver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the controller.
+ */
+public class FreecellControllerTest {
+
+  private static final String QUIT = "\nGame quit prematurely.";
+
+  /**
+   * Play the default deck as-is with the given input.
+   *
+   * @param input the commands
+   * @return the output.
+   */
+  private static String play(String input) {
+    return play(input, false);
+  }
+
+  /**
+   * Play the default deck as-is with the given input, with a headless controller or not.
+   *
+   * @param input    the commands
+   * @param headless whether the controller is headless
+   * @return the output.
+   */
+  private static String play(String input, boolean headless) {
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    StringBuilder out = new StringBuilder();
+    new FreecellController(new StringReader(input), out, headless).playGame(model.getDeck(),
+            model, false);
+    return out.toString();
+  }
+
+  /**
+   * Test that a move is made and its state written after the start state.
+   */
+  @Test
+  public void testMove() {
+    String out = play("C1 7 O1");
+    assertTrue(out.endsWith("O1: 10♠\nO2:\nO3:\nO4:\n"
+            + "C1: A♣, 9♣, 4♦, Q♦, 7♥, 2♠\n"
+            + "C2: 2♣, 10♣, 5♦, K♦, 8♥, 3♠, J♠\n"
+            + "C3: 3♣, J♣, 6♦, A♥, 9♥, 4♠, Q♠\n"
+            + "C4: 4♣, Q♣, 7♦, 2♥, 10♥, 5♠, K♠\n"
+            + "C5: 5♣, K♣, 8♦, 3♥, J♥, 6♠\n"
+            + "C6: 6♣, A♦, 9♦, 4♥, Q♥, 7♠\n"
+            + "C7: 7♣, 2♦, 10♦, 5♥, K♥, 8♠\n"
+            + "C8: 8♣, 3♦, J♦, 6♥, A♠, 9♠"));
+  }
+
+  /**
+   * Test that tokens which are not numbers, however long, are skipped until one is, and that a
+   * lower case pile type is only accepted for the source pile: for the destination the type is
+   * taken from the next token and the number from the first one.
+   */
+  @Test
+  public void testMalformedTokensSkipped() {
+    StringBuilder longToken = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      longToken.append('1');
+    }
+    String expected = play("C1 7 O1");
+    assertEquals(expected, play("c1 x " + longToken + " 7\n\tO1"));
+    assertEquals(play("C1 7 O2"), play("C1 7 o2 O1"));
+    assertEquals(expected, play("X C 1 7 O1"));
+  }
+
+  /**
+   * Test that an invalid move is reported and the game goes on.
+   */
+  @Test
+  public void testInvalidMove() {
+    String out = play("C1 1 O1 C1 7 O1");
+    assertTrue(out.contains("\nInvalid move. Try again. "));
+    assertTrue(out.endsWith(play("C1 7 O1").substring(play("").length())));
+  }
+
+  /**
+   * Test the ways of quitting: a q anywhere in a token, a pile number of only q and bars, and a
+   * destination pile type of q, which writes the message twice.
+   */
+  @Test
+  public void testQuit() {
+    String start = play("");
+    assertEquals(start + QUIT, play("C1 7 xQx C1 7 O1"));
+    assertEquals(start + QUIT, play("C| 7 O1"));
+    assertEquals(start + QUIT, play("C1 x q"));
+    assertEquals(start + QUIT + QUIT, play("C1 7 z q C1 7 O1"));
+    assertFalse(play("C1 7 O1 q").endsWith(QUIT + QUIT));
+  }
+
+  /**
+   * Test that input ending in the middle of a retry throws NoSuchElementException.
+   */
+  @Test(expected = NoSuchElementException.class)
+  public void testInputEndsInRetry() {
+    play("C1 x");
+  }
+
+  /**
+   * Test that a headless controller writes only the final state and a count of the moves, with
+   * the invalid ones counted per reason.
+   */
+  @Test
+  public void testHeadless() {
+    String state = play("C1 7 O1").substring(play("").length());
+    String out = play("C1 1 O1 C1 7 O1 C2 7 O1 C2 99 O3", true);
+    assertTrue(out.startsWith(state + "\nValid moves: 1, invalid moves: 3\n  "));
+    assertEquals(3, out.split("\n  ").length);
+    assertTrue(out.endsWith(": 1"));
+    assertFalse(out.contains("Game over."));
+    assertEquals("\n" + play("", false).substring(1) + "\nValid moves: 0, invalid moves: 0",
+            play("", true));
+  }
+
+  /**
+   * Test that a headless controller writes that the game is over once the solution of a deal is
+   * replayed, and what it wrote before quitting.
+   */
+  @Test
+  public void testHeadlessGameOver() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    List<Card> deck = new ArrayList<>(new DealGenerator().deal(1));
+    model.startGame(deck, false);
+    StringBuilder input = new StringBuilder();
+    for (long move : new FreecellSolver().solve(model).getMoves()) {
+      input.append(Moves.toString(move)).append('\n');
+    }
+    StringBuilder out = new StringBuilder();
+    new FreecellController(new StringReader(input.toString()), out, true).playGame(deck, model,
+            false);
+    assertTrue(out.toString().contains("\nGame over.\nValid moves: "));
+    assertTrue(out.toString().endsWith(", invalid moves: 0"));
+    assertTrue(play("C1 7 O1 q", true).startsWith(QUIT + "\n"));
+  }
+
+  /**
+   * Test that a write that fails has its stack trace printed and does not end the game, whose
+   * next moves are written.
+   */
+  @Test
+  public void testOutputFailureKeepsPlaying() {
+    FailingOnceAppendable out = new FailingOnceAppendable();
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    PrintStream err = System.err;
+    System.setErr(new PrintStream(errors, true));
+    try {
+      new FreecellController(new StringReader("C1 7 O1 C2 7 O2"), out, 1, false)
+              .playGame(new DealGenerator().deal(1), FreecellModel.getBuilder().build(), false);
+    } finally {
+      System.setErr(err);
+    }
+    assertTrue(errors.toString().contains("java.io.IOException: Output unavailable"));
+    assertTrue(out.text.toString().contains("\nO1: 6♠\nO2: 9♣\n"));
+  }
+
+  /**
+   * Test that the output of a batch of commands read at once is written in one call once they
+   * are played, and is the same as without the buffer.
+   */
+  @Test
+  public void testOutputCoalesced() {
+    String input = "C1 7 O1 C1 1 O2 C1 6 O2\n";
+    CountingAppendable out = new CountingAppendable();
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    new FreecellController(new StringReader(input), out).playGame(model.getDeck(), model, false);
+    assertEquals(play(input), out.text.toString());
+    assertEquals(2, out.calls);
+
+    out = new CountingAppendable();
+    new FreecellController(new StringReader(input), out, 1, false).playGame(model.getDeck(),
+            model, false);
+    assertEquals(play(input), out.text.toString());
+    assertEquals(4, out.calls);
+  }
+
+  /**
+   * Test that the intermediate states of a run of valid moves read at once are dropped, but not
+   * the messages, and that nothing is dropped when the commands are read one character at a time.
+   */
+  @Test
+  public void testDropStates() {
+    String input = "C1 7 O1 C1 6 O2 C2 1 O3 C2 7 O3 C3 7 O4\n";
+    String full = play(input);
+    String start = play("");
+    FreecellOperations<Card> model = FreecellModel.getBuilder().build();
+    StringBuilder out = new StringBuilder();
+    new FreecellController(new StringReader(input), out, 0, true).playGame(model.getDeck(),
+            model, false);
+    String state = play("C1 7 O1 C1 6 O2").substring(play("C1 7 O1").length());
+    String invalid = full.substring(play("C1 7 O1 C1 6 O2").length(),
+            play("C1 7 O1 C1 6 O2 C2 1 O3").length());
+    String last = full.substring(play("C1 7 O1 C1 6 O2 C2 1 O3 C2 7 O3").length());
+    assertEquals(start + state + invalid + last, out.toString());
+
+    out = new StringBuilder();
+    new FreecellController(new OneCharReadable(input), out, 0, true).playGame(model.getDeck(),
+            model, false);
+    assertEquals(full, out.toString());
+  }
+
+  /**
+   * Test that a negative flush interval is rejected.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeFlushInterval() {
+    new FreecellController(new StringReader(""), new StringBuilder(), -1, false);
+  }
+
+  /**
+   * The output which counts how many times it is appended to.
+   */
+  private static final class CountingAppendable implements Appendable {
+
+    private final StringBuilder text = new StringBuilder();
+    private int calls;
+
+    @Override
+    public Appendable append(CharSequence csq) {
+      calls++;
+      text.append(csq);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      calls++;
+      text.append(csq, start, end);
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      calls++;
+      text.append(c);
+      return this;
+    }
+  }
+
+  /**
+   * The output which fails on its first write and takes every following one.
+   */
+  private static final class FailingOnceAppendable implements Appendable {
+
+    private final StringBuilder text = new StringBuilder();
+    private boolean failed;
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+      if (!failed) {
+        failed = true;
+        throw new IOException("Output unavailable");
+      }
+      text.append(csq);
+      return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+      return append(csq.subSequence(start, end));
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+      return append(String.valueOf(c));
+    }
+  }
+
+  /**
+   * The input which gives one character per read.
+   */
+  private static final class OneCharReadable implements Readable {
+
+    private final String input;
+    private int position;
+
+    /**
+     * Instantiates a new input.
+     *
+     * @param input the characters
+     */
+    private OneCharReadable(String input) {
+      this.input = input;
+    }
+
+    @Override
+    public int read(CharBuffer cb) {
+      if (position == input.length()) {
+        return -1;
+      }
+      cb.append(input.charAt(position++));
+      return 1;
+    }
+  }
+}
@@ -1,19 +1,34 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import freecell.model.Card;
+import freecell.model.DealGenerator;
 import freecell.model.FreecellModel;
 import freecell.model.FreecellMultiMoveModel;
 import freecell.model.FreecellOperations;
+import freecell.model.MoveStatus;
+import freecell.model.Moves;
 import freecell.model.PileType;
 import freecell.model.Suit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * The Freecell game model test.
@@ -627,6 +642,43 @@ public class FreecellModelTest {
     assertNotEquals(fcoOpen4Cascade6.getGameState(), fcoOpen4Cascade62.getGameState());
   }
 
+  /**
+   * Test that models built with the same seed shuffle the same games one after the other, and
+   * that the deck given is left as it was.
+   */
+  @Test
+  public void testSeededShuffle() {
+    FreecellOperations<Card> first = FreecellModel.getBuilder().seed(42).build();
+    FreecellOperations<Card> second = FreecellMultiMoveModel.getBuilder().seed(42).build();
+    List<Card> deck = first.getDeck();
+    List<Card> copy = new ArrayList<>(deck);
+    first.startGame(deck, true);
+    second.startGame(deck, true);
+    String game = first.getGameState();
+    assertEquals(game, second.getGameState());
+    assertEquals(copy, deck);
+    first.startGame(deck, true);
+    second.startGame(deck, true);
+    assertEquals(first.getGameState(), second.getGameState());
+    assertNotEquals(game, first.getGameState());
+  }
+
+  /**
+   * Test that a game dealt with a seed is the same for every model with the same piles.
+   */
+  @Test
+  public void testStartGameWithSeed() {
+    FreecellModel first = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    FreecellModel second = (FreecellModel) FreecellModel.getBuilder().seed(5).<Card>build();
+    List<Card> deck = first.getDeck();
+    first.startGame(deck, 7L);
+    second.startGame(deck, 7L);
+    assertEquals(first.getGameState(), second.getGameState());
+    assertEquals(first.getDeck(), deck);
+    second.startGame(deck, 8L);
+    assertNotEquals(first.getGameState(), second.getGameState());
+  }
+
   /**
    * Test invalid deck. Throws IllegalArgumentException if the deck is invalid.
    */
@@ -637,6 +689,39 @@ public class FreecellModelTest {
     fcoDefault.startGame(defaultDeck, false);
   }
 
+  /**
+   * Test invalid deck with a duplicate card. Throws IllegalArgumentException because a card is
+   * replaced by a copy of another one.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDeckDuplicateCard() {
+    List<Card> defaultDeck = fcoDefault.getDeck();
+    defaultDeck.set(51, new Card(Suit.DIAMOND, 1));
+    fcoDefault.startGame(defaultDeck, false);
+  }
+
+  /**
+   * Test invalid deck with a null card. Throws IllegalArgumentException because every card of
+   * the deck must be present.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDeckNullCard() {
+    List<Card> defaultDeck = fcoDefault.getDeck();
+    defaultDeck.set(0, null);
+    fcoDefault.startGame(defaultDeck, false);
+  }
+
+  /**
+   * Test invalid deck with a card number out of range. Throws IllegalArgumentException because
+   * the numbers of the cards must be between 1 and 13.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDeckCardNumberOutOfRange() {
+    List<Card> defaultDeck = fcoDefault.getDeck();
+    defaultDeck.set(0, new Card(Suit.CLUB, 0));
+    fcoDefault.startGame(defaultDeck, false);
+  }
+
   /**
    * Test game over pass.
    */
@@ -660,6 +745,428 @@ public class FreecellModelTest {
     assertTrue(freecellOperations.isGameOver());
   }
 
+  /**
+   * Test dealing a board with thousands of cascade and open piles. Every card goes to its own
+   * pile and the remaining piles are empty.
+   */
+  @Test
+  public void testDealThousandsOfCascades() {
+    FreecellOperations<Card> freecellOperations = FreecellMultiMoveModel.getBuilder()
+            .cascades(3000).opens(2000).build();
+    freecellOperations.startGame(freecellOperations.getDeck(), false);
+    freecellOperations.move(PileType.CASCADE, 0, 0, PileType.FOUNDATION, 0);
+    freecellOperations.move(PileType.CASCADE, 51, 0, PileType.OPEN, 1999);
+    freecellOperations.move(PileType.CASCADE, 14, 0, PileType.CASCADE, 2999);
+    String state = freecellOperations.getGameState();
+    assertTrue(state.startsWith("F1: A♣\n"));
+    assertTrue(state.contains("\nO2000: K♠\nC1:\nC2: 2♣\n"));
+    assertTrue(state.contains("\nC15:\n"));
+    assertTrue(state.endsWith("\nC2999:\nC3000: 2♦"));
+  }
+
+  /**
+   * Test that the game state written as bytes matches the game state string.
+   */
+  @Test
+  public void testWriteGameStateBytes() throws IOException {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().cascades(12)
+            .opens(2).<Card>build();
+    assertEquals(0, model.writeGameState(ByteBuffer.allocate(0)));
+    model.startGame(model.getDeck(), false);
+    model.move(PileType.CASCADE, 0, 4, PileType.OPEN, 0);
+    model.move(PileType.CASCADE, 9, 3, PileType.OPEN, 1);
+    byte[] expected = model.getGameState().getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+    assertEquals(expected.length, model.getGameStateLength());
+    assertEquals(expected.length, model.writeGameState(buffer));
+    assertArrayEquals(expected, buffer.array());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    model.writeGameState(Channels.newChannel(out));
+    model.writeGameState(Channels.newChannel(out));
+    assertEquals(model.getGameState() + model.getGameState(),
+            new String(out.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Test writing the game state to a channel in non-blocking mode. Throws
+   * IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteGameStateNonBlocking() throws IOException {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    Pipe pipe = Pipe.open();
+    try {
+      pipe.sink().configureBlocking(false);
+      model.writeGameState(pipe.sink());
+    } finally {
+      pipe.sink().close();
+      pipe.source().close();
+    }
+  }
+
+  /**
+   * Test writing the game state to a buffer that is too small. Throws BufferOverflowException
+   * without writing anything.
+   */
+  @Test(expected = BufferOverflowException.class)
+  public void testWriteGameStateBufferTooSmall() {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    model.writeGameState(ByteBuffer.allocate(model.getGameStateLength() - 1));
+  }
+
+  /**
+   * Test the legal moves generated from the default deal, and after one card has been moved to
+   * an open pile.
+   */
+  @Test
+  public void testGenerateMoves() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    long[] moves = new long[model.getMaxMoves()];
+    assertEquals(32, model.generateMoves(moves));
+    assertEquals("C1 7 O1", Moves.toString(moves[0]));
+
+    model.move(PileType.CASCADE, 4, 5, PileType.OPEN, 0);
+    int count = model.generateMoves(moves);
+    assertEquals(29, count);
+    assertEquals(Moves.encode(PileType.CASCADE, 0, 6, PileType.CASCADE, 4), moves[0]);
+    long move = moves[count - 1];
+    assertEquals(PileType.OPEN, Moves.sourceType(move));
+    assertEquals(0, Moves.sourcePile(move));
+    assertEquals(PileType.OPEN, Moves.destinationType(move));
+    assertEquals(3, Moves.destinationPile(move));
+  }
+
+  /**
+   * Test generating moves into a buffer that is too small. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateMovesBufferTooSmall() {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    model.generateMoves(new long[31]);
+  }
+
+  /**
+   * Test that tryMove reports why a move is invalid without throwing, and makes valid moves.
+   */
+  @Test
+  public void testTryMoveStatus() {
+    assertEquals(MoveStatus.NOT_STARTED,
+            fcoDefault.tryMove(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    fcoDefault.startGame(fcoDefault.getDeck(), false);
+    assertEquals(MoveStatus.BAD_PILE,
+            fcoDefault.tryMove(PileType.CASCADE, 0, 6, PileType.CASCADE, 9));
+    assertEquals(MoveStatus.BAD_INDEX,
+            fcoDefault.tryMove(PileType.CASCADE, 0, 3, PileType.CASCADE, 1));
+    assertEquals(MoveStatus.ILLEGAL_CARD,
+            fcoDefault.tryMove(PileType.CASCADE, 0, 6, PileType.CASCADE, 1));
+    assertEquals(MoveStatus.EMPTY_PILE,
+            fcoDefault.tryMove(PileType.OPEN, 0, 0, PileType.CASCADE, 1));
+    assertEquals(MoveStatus.BAD_PILE_TYPE,
+            fcoDefault.tryMove(PileType.FOUNDATION, 0, 0, PileType.CASCADE, 1));
+    assertEquals(MoveStatus.OK, fcoDefault.tryMove(PileType.CASCADE, 0, 6, PileType.OPEN, 0));
+    assertEquals(MoveStatus.PILE_FILLED,
+            fcoDefault.tryMove(PileType.CASCADE, 1, 6, PileType.OPEN, 0));
+    assertTrue(fcoDefault.getGameState().contains("O1: 10♠\n"));
+  }
+
+  /**
+   * Test that a build longer than the free piles allow is reported as a lack of capacity.
+   */
+  @Test
+  public void testTryMoveNoCapacity() {
+    fcoOpen4Cascade8.startGame(fcoOpen4Cascade8.getDeck(), false);
+    for (int i = 0; i < 4; i++) {
+      fcoOpen4Cascade8.move(PileType.CASCADE, 4 + i, 5, PileType.OPEN, i);
+    }
+    fcoOpen4Cascade8.move(PileType.CASCADE, 0, 6, PileType.CASCADE, 4);
+    assertEquals(MoveStatus.NO_CAPACITY,
+            fcoOpen4Cascade8.tryMove(PileType.CASCADE, 4, 4, PileType.CASCADE, 2));
+  }
+
+  /**
+   * Test that a packed move without valid pile types, such as no move at all, is reported as a
+   * bad pile type without changing the game.
+   */
+  @Test
+  public void testTryMovePackedBadPileType() {
+    FreecellModel model = (FreecellModel) fcoDefault;
+    model.startGame(model.getDeck(), false);
+    String state = model.getGameState();
+    assertEquals(MoveStatus.BAD_PILE_TYPE, model.tryMove(Moves.NONE));
+    assertEquals(MoveStatus.BAD_PILE_TYPE, model.tryMove(3L));
+    assertEquals(MoveStatus.BAD_PILE_TYPE, model.tryMove(3L << 2));
+    assertEquals(state, model.getGameState());
+    assertEquals(MoveStatus.OK,
+            model.tryMove(Moves.encode(PileType.CASCADE, 0, 6, PileType.OPEN, 0)));
+  }
+
+  /**
+   * Test the message of every status code, which is what the controller prints for an invalid
+   * move.
+   */
+  @Test
+  public void testMoveStatusMessages() {
+    assertEquals("OK", MoveStatus.message(MoveStatus.OK));
+    assertEquals("Game not started yet so cannot make a move.",
+            MoveStatus.message(MoveStatus.NOT_STARTED));
+    assertEquals("Invalid pile type", MoveStatus.message(MoveStatus.BAD_PILE_TYPE));
+    assertEquals("Invalid pile number", MoveStatus.message(MoveStatus.BAD_PILE));
+    assertEquals("Invalid card index", MoveStatus.message(MoveStatus.BAD_INDEX));
+    assertEquals("No card in open pile", MoveStatus.message(MoveStatus.EMPTY_PILE));
+    assertEquals("Open pile already filled", MoveStatus.message(MoveStatus.PILE_FILLED));
+    assertEquals("Invalid card", MoveStatus.message(MoveStatus.ILLEGAL_CARD));
+    assertEquals("Not enough moves", MoveStatus.message(MoveStatus.NO_CAPACITY));
+    assertEquals("Card cannot be moved", MoveStatus.message(MoveStatus.CANNOT_MOVE));
+    assertEquals("Unknown status", MoveStatus.message(10));
+  }
+
+  /**
+   * Test that a card other than an ace moved to an empty foundation pile is reported as a card
+   * that cannot be moved, from a cascade and from an open pile.
+   */
+  @Test
+  public void testTryMoveCannotMove() {
+    fcoDefault.startGame(fcoDefault.getDeck(), false);
+    assertEquals(MoveStatus.CANNOT_MOVE,
+            fcoDefault.tryMove(PileType.CASCADE, 0, 6, PileType.FOUNDATION, 0));
+    fcoDefault.move(PileType.CASCADE, 0, 6, PileType.OPEN, 0);
+    assertEquals(MoveStatus.CANNOT_MOVE,
+            fcoDefault.tryMove(PileType.OPEN, 0, 0, PileType.FOUNDATION, 0));
+    try {
+      fcoDefault.move(PileType.OPEN, 0, 0, PileType.FOUNDATION, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Card cannot be moved", e.getMessage());
+    }
+  }
+
+  /**
+   * Test that cards that do not form a build are reported the way a build too long to move is.
+   */
+  @Test
+  public void testTryMoveNotABuild() {
+    fcoOpen4Cascade8.startGame(fcoOpen4Cascade8.getDeck(), false);
+    assertEquals(MoveStatus.NO_CAPACITY,
+            fcoOpen4Cascade8.tryMove(PileType.CASCADE, 0, 0, PileType.CASCADE, 1));
+    try {
+      fcoOpen4Cascade8.move(PileType.CASCADE, 0, 0, PileType.CASCADE, 1);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("Not enough moves", e.getMessage());
+    }
+  }
+
+  /**
+   * Test move from a foundation pile. Throws IllegalArgumentException because cards cannot be
+   * moved out of a foundation pile.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testMoveFromFoundation() {
+    fcoDefault.startGame(fcoDefault.getDeck(), false);
+    fcoDefault.move(PileType.FOUNDATION, 0, 0, PileType.OPEN, 0);
+  }
+
+  /**
+   * Test undoing and redoing moves, including a build moved between cascade piles.
+   */
+  @Test
+  public void testUndoRedo() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    String start = model.getGameState();
+    model.move(PileType.CASCADE, 4, 5, PileType.OPEN, 0);
+    model.move(PileType.CASCADE, 0, 6, PileType.CASCADE, 4);
+    String afterTwo = model.getGameState();
+    model.move(PileType.CASCADE, 4, 4, PileType.CASCADE, 2);
+    String afterBuild = model.getGameState();
+    assertEquals(3, model.getMoveCount());
+    assertEquals(Moves.encode(PileType.CASCADE, 4, 4, PileType.CASCADE, 2), model.getLastMove());
+
+    model.undo();
+    assertEquals(afterTwo, model.getGameState());
+    model.redo();
+    assertEquals(afterBuild, model.getGameState());
+    model.undo();
+    model.undo();
+    model.undo();
+    assertEquals(start, model.getGameState());
+    assertFalse(model.canUndo());
+    assertEquals(Moves.NONE, model.getLastMove());
+
+    model.redo();
+    model.move(PileType.CASCADE, 1, 6, PileType.OPEN, 1);
+    assertFalse(model.canRedo());
+  }
+
+  /**
+   * Test undo at the start of a game. Throws IllegalStateException because there is no move to
+   * take back.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testUndoWithoutMove() {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    model.undo();
+  }
+
+  /**
+   * Test that a copy has the same rules and position as its model and can be played on its own.
+   */
+  @Test
+  public void testCopy() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    model.move(PileType.CASCADE, 4, 5, PileType.OPEN, 0);
+    FreecellModel copy = model.copy();
+    assertTrue(copy instanceof FreecellMultiMoveModel);
+    assertEquals(model.getGameState(), copy.getGameState());
+    assertEquals(model.getHash(), copy.getHash());
+    assertFalse(copy.canUndo());
+
+    copy.move(PileType.CASCADE, 0, 6, PileType.CASCADE, 4);
+    copy.move(PileType.CASCADE, 4, 4, PileType.CASCADE, 2);
+    assertNotEquals(model.getGameState(), copy.getGameState());
+    model.move(PileType.CASCADE, 0, 6, PileType.CASCADE, 4);
+    model.move(PileType.CASCADE, 4, 4, PileType.CASCADE, 2);
+    assertEquals(model.getGameState(), copy.getGameState());
+    assertEquals(model.getHash(), copy.getHash());
+  }
+
+  /**
+   * Test that a saved position is put back, on the same model or another one with the same number
+   * of piles.
+   */
+  @Test
+  public void testSaveRestoreState() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    model.move(PileType.CASCADE, 4, 5, PileType.OPEN, 0);
+    model.move(PileType.CASCADE, 0, 6, PileType.CASCADE, 4);
+    byte[] state = new byte[model.getStateSize() + 3];
+    model.saveState(state, 3);
+    String saved = model.getGameState();
+    long hash = model.getHash();
+    long canonicalHash = model.getCanonicalHash();
+
+    model.move(PileType.CASCADE, 4, 4, PileType.CASCADE, 2);
+    model.restoreState(state, 3);
+    assertEquals(saved, model.getGameState());
+    assertEquals(hash, model.getHash());
+    assertEquals(canonicalHash, model.getCanonicalHash());
+    assertFalse(model.canUndo());
+
+    FreecellModel other = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    other.restoreState(state, 3);
+    assertEquals(saved, other.getGameState());
+    other.move(PileType.CASCADE, 4, 4, PileType.CASCADE, 2);
+  }
+
+  /**
+   * Test saving a position to an array too small for it. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testSaveStateBufferTooSmall() {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    model.saveState(new byte[model.getStateSize()], 1);
+  }
+
+  /**
+   * Test that deal numbers give the classic Microsoft deals.
+   */
+  @Test
+  public void testMicrosoftDeal() {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    DealGenerator generator = new DealGenerator();
+    model.startGame(generator.deal(1), false);
+    String[] rows = {"J\u2666 2\u2666 9\u2665 J\u2663 5\u2666 7\u2665 7\u2663 5\u2665",
+        "K\u2666 K\u2663 9\u2660 5\u2660 A\u2666 Q\u2663 K\u2665 3\u2665"};
+    for (int row = 0; row < rows.length; row++) {
+      StringBuilder sb = new StringBuilder();
+      for (int pile = 0; pile < 8; pile++) {
+        sb.append(pile == 0 ? "" : " ").append(Card.labelOf(model.getCascadeCard(pile, row)));
+      }
+      assertEquals(rows[row], sb.toString());
+    }
+    assertEquals("6\u2660 9\u2663 2\u2665 6\u2665", Card.labelOf(model.getCascadeCard(0, 6))
+            + " " + Card.labelOf(model.getCascadeCard(1, 6)) + " "
+            + Card.labelOf(model.getCascadeCard(2, 6)) + " "
+            + Card.labelOf(model.getCascadeCard(3, 6)));
+  }
+
+  /**
+   * Test that deals written to a stream are read back the same, and that the stream ends after
+   * the last one.
+   *
+   * @throws IOException if the streams fail
+   */
+  @Test
+  public void testWriteReadDeals() throws IOException {
+    DealGenerator generator = new DealGenerator();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    generator.write(out, 1000, 50);
+    assertEquals(50 * DealGenerator.RECORD_SIZE, out.size());
+
+    DealGenerator expected = new DealGenerator();
+    ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    for (long number = 1000; number < 1050; number++) {
+      assertEquals(expected.deal(number), generator.read(in));
+    }
+    assertEquals(null, generator.read(in));
+  }
+
+  /**
+   * Test a deal number of 0. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidDealNumber() {
+    new DealGenerator().deal(0);
+  }
+
+  /**
+   * Test that the hash follows moves, comes back on undo, and that the canonical hash ignores
+   * which open or cascade pile holds the cards.
+   */
+  @Test
+  public void testHash() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().<Card>build();
+    model.startGame(model.getDeck(), false);
+    long start = model.getHash();
+    long canonicalStart = model.getCanonicalHash();
+    model.move(PileType.CASCADE, 4, 5, PileType.OPEN, 0);
+    long toFirst = model.getHash();
+    long canonicalToFirst = model.getCanonicalHash();
+    assertNotEquals(start, toFirst);
+    assertNotEquals(canonicalStart, canonicalToFirst);
+    model.undo();
+    assertEquals(start, model.getHash());
+    assertEquals(canonicalStart, model.getCanonicalHash());
+
+    model.move(PileType.CASCADE, 4, 5, PileType.OPEN, 2);
+    assertNotEquals(toFirst, model.getHash());
+    assertEquals(canonicalToFirst, model.getCanonicalHash());
+    model.move(PileType.CASCADE, 0, 6, PileType.CASCADE, 4);
+    model.move(PileType.CASCADE, 4, 4, PileType.CASCADE, 2);
+    model.undo();
+    model.undo();
+    model.undo();
+    assertEquals(start, model.getHash());
+
+    List<Card> swapped = new ArrayList<>(model.getDeck());
+    for (int i = 0; i + 1 < swapped.size(); i += 8) {
+      Collections.swap(swapped, i, i + 1);
+    }
+    model.startGame(swapped, false);
+    assertNotEquals(start, model.getHash());
+    assertEquals(canonicalStart, model.getCanonicalHash());
+  }
+
   /**
    * Test game state string before start game.
    */
@@ -676,6 +1183,41 @@ public class FreecellModelTest {
     Card c = new Card(Suit.CLUB, 14);
   }
 
+  /**
+   * Test that the deck is made of the shared cards and that ordinals follow the deck order.
+   */
+  @Test
+  public void testCardOrdinal() {
+    List<Card> deck = fcoDefault.getDeck();
+    for (int i = 0; i < deck.size(); i++) {
+      assertEquals(i, deck.get(i).ordinal());
+      assertTrue(deck.get(i) == Card.valueOf(i));
+    }
+    assertTrue(Card.of(Suit.HEART, 12) == Card.valueOf(37));
+    assertEquals("Q♥", Card.valueOf(37).toString());
+    assertEquals(new Card(Suit.SPADE, 10), Card.of(Suit.SPADE, 10));
+    assertEquals(-1, new Card(Suit.SPADE, 0).ordinal());
+  }
+
+  /**
+   * Test that aces, jacks, queens and kings are shown by their letter and the other cards by
+   * their number, for shared cards and for cards without a suit alike.
+   */
+  @Test
+  public void testCardFaces() {
+    assertEquals("A♠", Card.of(Suit.SPADE, 1).toString());
+    assertEquals("J♣", Card.of(Suit.CLUB, 11).toString());
+    assertEquals("Q♦", Card.of(Suit.DIAMOND, 12).toString());
+    assertEquals("K♥", Card.of(Suit.HEART, 13).toString());
+    assertEquals("10♠", Card.of(Suit.SPADE, 10).toString());
+    assertEquals("A♠", new Card(null, 1).toString());
+    assertEquals("J♠", new Card(null, 11).toString());
+    assertEquals("Q♠", new Card(null, 12).toString());
+    assertEquals("K♠", new Card(null, 13).toString());
+    assertEquals("7♠", new Card(null, 7).toString());
+    assertEquals("0♣", new Card(Suit.CLUB, 0).toString());
+  }
+
 //  /**
 //   * This method tests valid move from cascade to cascade pile.
 //   */
@@ -0,0 +1,470 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.FreecellMultiMoveModel;
+import freecell.model.FreecellOperations;
+import freecell.model.FreecellOperationsBuilder;
+import freecell.model.Moves;
+import freecell.solver.BatchSolver;
+import freecell.solver.BeamSolver;
+import freecell.solver.CancellationToken;
+import freecell.solver.FreecellSolver;
+import freecell.solver.OffHeapTranspositionTable;
+import freecell.solver.ParallelFreecellSolver;
+import freecell.solver.ReplacementPolicy;
+import freecell.solver.SolverResult;
+import freecell.solver.SolverStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the solver.
+ */
+public class FreecellSolverTest {
+
+  /**
+   * Test that the solutions found win the game when replayed and that the model is left as it
+   * was.
+   */
+  @Test
+  public void testSolve() {
+    FreecellSolver solver = new FreecellSolver();
+    for (long seed = 1; seed <= 10; seed++) {
+      FreecellModel model = Deals.deal(seed);
+      String start = model.getGameState();
+      SolverResult result = solver.solve(model);
+      assertEquals(SolverStatus.SOLVED, result.getStatus());
+      assertEquals(start, model.getGameState());
+      assertFalse(model.canUndo());
+
+      for (long move : result.getMoves()) {
+        model.move(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+                Moves.destinationType(move), Moves.destinationPile(move));
+      }
+      assertTrue(model.isGameOver());
+      assertEquals(0, solver.solve(model).getMoveCount());
+    }
+  }
+
+  /**
+   * Test that the parallel solver finds solutions that win the game and leaves the model as it
+   * was.
+   */
+  @Test
+  public void testParallelSolve() {
+    try (ParallelFreecellSolver solver = new ParallelFreecellSolver(2,
+            FreecellSolver.DEFAULT_MAX_NODES, FreecellSolver.DEFAULT_MAX_DEPTH,
+            FreecellSolver.DEFAULT_WEIGHT)) {
+      for (long seed = 1; seed <= 5; seed++) {
+        FreecellModel model = Deals.deal(seed);
+        String start = model.getGameState();
+        SolverResult result = solver.solve(model);
+        assertEquals(SolverStatus.SOLVED, result.getStatus());
+        assertEquals(start, model.getGameState());
+
+        for (long move : result.getMoves()) {
+          model.move(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+                  Moves.destinationType(move), Moves.destinationPile(move));
+        }
+        assertTrue(model.isGameOver());
+      }
+    }
+  }
+
+  /**
+   * Test that the solver finds solutions with an off-heap table too small to hold every position.
+   */
+  @Test
+  public void testSolveWithSmallTable() {
+    FreecellSolver solver = new FreecellSolver(FreecellSolver.DEFAULT_MAX_NODES,
+            FreecellSolver.DEFAULT_MAX_DEPTH, FreecellSolver.DEFAULT_WEIGHT,
+            new OffHeapTranspositionTable(1 << 14, ReplacementPolicy.DEPTH_PREFERRED));
+    for (long seed = 1; seed <= 5; seed++) {
+      FreecellModel model = Deals.deal(seed);
+      SolverResult result = solver.solve(model);
+      assertEquals(SolverStatus.SOLVED, result.getStatus());
+      for (long move : result.getMoves()) {
+        model.move(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+                Moves.destinationType(move), Moves.destinationPile(move));
+      }
+      assertTrue(model.isGameOver());
+    }
+  }
+
+  /**
+   * Test that the off-heap table records positions once, forgets them when cleared, and applies
+   * its replacement policy when full.
+   */
+  @Test
+  public void testOffHeapTable() {
+    OffHeapTranspositionTable table = new OffHeapTranspositionTable(8,
+            ReplacementPolicy.KEEP_EXISTING);
+    for (long i = 1; i <= 8; i++) {
+      assertTrue(table.add(i << 40, 5));
+    }
+    assertFalse(table.add(3L << 40, 1));
+    assertEquals(8, table.size());
+    assertTrue(table.add(9L << 40, 5));
+    assertTrue(table.add(9L << 40, 5));
+    for (int i = 0; i < 300; i++) {
+      table.clear();
+    }
+    assertEquals(0, table.size());
+    assertTrue(table.add(3L << 40, 1));
+    assertFalse(table.add(3L << 40, 1));
+
+    table = new OffHeapTranspositionTable(8, ReplacementPolicy.ALWAYS_REPLACE);
+    for (long i = 1; i <= 8; i++) {
+      table.add(i << 40, 5);
+    }
+    assertTrue(table.add(9L << 40, 5));
+    assertFalse(table.add(9L << 40, 5));
+
+    table = new OffHeapTranspositionTable(8, ReplacementPolicy.DEPTH_PREFERRED);
+    for (long i = 1; i <= 8; i++) {
+      table.add(i << 40, (int) i);
+    }
+    assertTrue(table.add(9L << 40, 20));
+    assertTrue(table.add(9L << 40, 20));
+    assertTrue(table.add(10L << 40, 3));
+    assertFalse(table.add(10L << 40, 3));
+    assertTrue(table.add(8L << 40, 8));
+  }
+
+  /**
+   * Test that positions whose hashes differ only in their low bits are told apart.
+   */
+  @Test
+  public void testOffHeapTableFullHash() {
+    OffHeapTranspositionTable table = new OffHeapTranspositionTable(8,
+            ReplacementPolicy.KEEP_EXISTING);
+    for (long low = 0; low < 8; low++) {
+      assertTrue(table.add(5L << 40 | low, 3));
+    }
+    for (long low = 0; low < 8; low++) {
+      assertFalse(table.add(5L << 40 | low, 3));
+    }
+    assertEquals(8, table.size());
+  }
+
+  /**
+   * Test that the memory of a table of the largest capacity fits in a single direct buffer.
+   */
+  @Test
+  public void testOffHeapTableMemory() {
+    assertEquals(32L << 20, OffHeapTranspositionTable.memoryFor(
+            OffHeapTranspositionTable.DEFAULT_CAPACITY));
+    assertEquals(1L << 30, OffHeapTranspositionTable.memoryFor(
+            OffHeapTranspositionTable.MAX_CAPACITY));
+    assertTrue(OffHeapTranspositionTable.memoryFor(OffHeapTranspositionTable.MAX_CAPACITY)
+            <= Integer.MAX_VALUE);
+  }
+
+  /**
+   * Test a table of more than the largest capacity. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testOffHeapTableTooLarge() {
+    new OffHeapTranspositionTable(OffHeapTranspositionTable.MAX_CAPACITY << 1,
+            ReplacementPolicy.KEEP_EXISTING);
+  }
+
+  /**
+   * Test that positions added by several threads at once are reported new exactly once.
+   *
+   * @throws InterruptedException if the test is interrupted
+   */
+  @Test
+  public void testOffHeapTableConcurrentAdd() throws InterruptedException {
+    OffHeapTranspositionTable table = new OffHeapTranspositionTable(1 << 16,
+            ReplacementPolicy.KEEP_EXISTING);
+    AtomicInteger added = new AtomicInteger();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        Random random = new Random(7);
+        for (int i = 0; i < 10000; i++) {
+          if (table.add(random.nextLong(), i)) {
+            added.incrementAndGet();
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(10000, added.get());
+    assertEquals(10000, table.size());
+  }
+
+  /**
+   * Test a table with a capacity that is not a power of two. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidTableCapacity() {
+    new OffHeapTranspositionTable(1000, ReplacementPolicy.KEEP_EXISTING);
+  }
+
+  /**
+   * Test that the beam solver finds solutions that win the game and leaves the model as it was.
+   */
+  @Test
+  public void testBeamSolve() {
+    BeamSolver solver = new BeamSolver();
+    for (long seed = 1; seed <= 3; seed++) {
+      FreecellModel model = Deals.deal(seed);
+      String start = model.getGameState();
+      SolverResult result = solver.solve(model);
+      assertEquals(SolverStatus.SOLVED, result.getStatus());
+      assertEquals(start, model.getGameState());
+      for (long move : result.getMoves()) {
+        model.move(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+                Moves.destinationType(move), Moves.destinationPile(move));
+      }
+      assertTrue(model.isGameOver());
+    }
+  }
+
+  /**
+   * Test that the beam solver reports a deal unsolvable only when it searched every position, and
+   * gives up when positions were left out of its beam, on a game with a single open pile.
+   */
+  @Test
+  public void testBeamUnsolvable() {
+    FreecellModel model = (FreecellModel) FreecellMultiMoveModel.getBuilder().opens(1)
+            .<Card>build();
+    List<Card> deck = new ArrayList<>(model.getDeck());
+    Collections.shuffle(deck, new Random(1));
+    model.startGame(deck, false);
+    assertEquals(SolverStatus.UNSOLVABLE, new BeamSolver().solve(model).getStatus());
+    assertEquals(SolverStatus.UNSOLVABLE, new FreecellSolver().solve(model).getStatus());
+    assertEquals(SolverStatus.GAVE_UP, new BeamSolver(1, 500).solve(model).getStatus());
+  }
+
+  /**
+   * Test that the solver gives up when it runs out of positions to expand.
+   */
+  @Test
+  public void testGiveUp() {
+    FreecellModel model = Deals.deal(1);
+    String start = model.getGameState();
+    SolverResult result = new FreecellSolver(1, 500, 1).solve(model);
+    assertEquals(SolverStatus.GAVE_UP, result.getStatus());
+    assertEquals(0, result.getMoveCount());
+    assertEquals(1, result.getNodes());
+    assertEquals(start, model.getGameState());
+  }
+
+  /**
+   * Test that a search stopped in the middle returns a partial line that can be played, on a deal
+   * of the base game, and that a search without time stops straight away. The search is stopped
+   * by a token cancelled the third time it is looked at, so after as many positions on every run.
+   */
+  @Test
+  public void testSolveTimedOut() {
+    FreecellModel model = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    List<Card> deck = new ArrayList<>(model.getDeck());
+    Collections.shuffle(deck, new Random(2));
+    model.startGame(deck, false);
+    String start = model.getGameState();
+    FreecellSolver solver = new FreecellSolver(Long.MAX_VALUE, FreecellSolver.DEFAULT_MAX_DEPTH,
+            FreecellSolver.DEFAULT_WEIGHT);
+    CancellationToken token = new CancellationToken() {
+      private int looks;
+
+      @Override
+      public boolean isCancelled() {
+        return ++looks >= 3;
+      }
+    };
+    SolverResult result = solver.solve(model, Duration.ofDays(1), token);
+    assertEquals(SolverStatus.CANCELLED, result.getStatus());
+    assertEquals(start, model.getGameState());
+    assertTrue(result.getMoveCount() > 0);
+    assertTrue(result.getNodes() > 1);
+    for (long move : result.getMoves()) {
+      model.move(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+              Moves.destinationType(move), Moves.destinationPile(move));
+    }
+
+    model.startGame(deck, false);
+    result = solver.solve(model, Duration.ZERO, null);
+    assertEquals(SolverStatus.TIMED_OUT, result.getStatus());
+    assertEquals(0, result.getMoveCount());
+    assertEquals(start, model.getGameState());
+  }
+
+  /**
+   * Test that a cancelled search stops straight away, and that a search with time to spare still
+   * finds a solution.
+   */
+  @Test
+  public void testSolveCancelled() {
+    FreecellModel model = Deals.deal(1);
+    CancellationToken token = new CancellationToken();
+    FreecellSolver solver = new FreecellSolver();
+    assertEquals(SolverStatus.SOLVED,
+            solver.solve(model, Duration.ofSeconds(30), token).getStatus());
+    token.cancel();
+    SolverResult result = solver.solve(model, Duration.ofSeconds(30), token);
+    assertEquals(SolverStatus.CANCELLED, result.getStatus());
+    assertEquals(0, result.getMoveCount());
+    assertEquals(0, result.getNodes());
+  }
+
+  /**
+   * Test solving with a negative time limit. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeTimeLimit() {
+    new FreecellSolver().solve(Deals.deal(1), Duration.ofMillis(-1), null);
+  }
+
+  /**
+   * Test that a batch run resumes from its checkpoint, dropping a row written after it, and ends
+   * with the rows of a run that was never interrupted.
+   *
+   * @throws IOException if the files cannot be written
+   */
+  @Test
+  public void testBatchResume() throws IOException {
+    Path directory = Files.createTempDirectory("batch");
+    Path resumed = directory.resolve("resumed.csv");
+    Path whole = directory.resolve("whole.csv");
+    Path checkpoint = directory.resolve("resumed.csv.checkpoint");
+    BatchSolver batch = new BatchSolver(FreecellMultiMoveModel.getBuilder(), 2,
+            FreecellSolver.DEFAULT_MAX_NODES, 4);
+    assertEquals(12, batch.run(1, 12, whole));
+    assertFalse(Files.exists(directory.resolve("whole.csv.checkpoint")));
+
+    // A run interrupted after its first chunk, with part of a row written after it.
+    List<String> expected = Files.readAllLines(whole);
+    String written = String.join("\n", expected.subList(0, 5)) + "\n";
+    Files.write(resumed, (written + "5,SOLVED,1").getBytes(StandardCharsets.US_ASCII));
+    Files.write(checkpoint, ("1 12 5 " + written.length() + "\n")
+            .getBytes(StandardCharsets.US_ASCII));
+    assertEquals(8, batch.run(1, 12, resumed));
+    assertFalse(Files.exists(checkpoint));
+
+    List<String> actual = Files.readAllLines(resumed);
+    assertEquals(13, actual.size());
+    assertEquals("deal,status,moves,nodes,micros", actual.get(0));
+    for (int i = 1; i < expected.size(); i++) {
+      String row = expected.get(i);
+      assertEquals(row.substring(0, row.lastIndexOf(',')),
+              actual.get(i).substring(0, actual.get(i).lastIndexOf(',')));
+      assertTrue(row.startsWith(i + ",SOLVED,"));
+    }
+
+    // A checkpoint whose output is gone is ignored.
+    Files.delete(resumed);
+    Files.write(checkpoint, "1 12 5 200\n".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(12, batch.run(1, 12, resumed));
+    assertEquals(13, Files.readAllLines(resumed).size());
+
+    // A checkpoint of another range is rejected and left as it is.
+    Files.write(checkpoint, "1 12 5 200\n".getBytes(StandardCharsets.US_ASCII));
+    try {
+      batch.run(1, 8, resumed);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertTrue(Files.exists(checkpoint));
+      assertEquals(13, Files.readAllLines(resumed).size());
+    }
+
+    // A truncated or malformed checkpoint is rejected, naming the file.
+    for (String saved : new String[]{"1 12 5", "1 12 5 2x0", "1 12 40 200", ""}) {
+      Files.write(checkpoint, saved.getBytes(StandardCharsets.US_ASCII));
+      try {
+        batch.run(1, 12, resumed);
+        fail();
+      } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains(checkpoint.toString()));
+        assertTrue(Files.exists(checkpoint));
+      }
+    }
+    for (Path file : new Path[]{resumed, whole, checkpoint}) {
+      Files.delete(file);
+    }
+    Files.delete(directory);
+  }
+
+  /**
+   * Test a batch on a builder of models the solver cannot search. Throws
+   * IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testBatchOtherBuilder() {
+    FreecellOperationsBuilder builder = new FreecellOperationsBuilder() {
+      @Override
+      public FreecellOperationsBuilder cascades(int c) {
+        return this;
+      }
+
+      @Override
+      public FreecellOperationsBuilder opens(int o) {
+        return this;
+      }
+
+      @Override
+      public FreecellOperationsBuilder seed(long seed) {
+        return this;
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      public <K> FreecellOperations<K> build() {
+        return (FreecellOperations<K>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{FreecellOperations.class}, (proxy, method, args) -> null);
+      }
+    };
+    new BatchSolver(builder, 1, FreecellSolver.DEFAULT_MAX_NODES, BatchSolver.DEFAULT_CHUNK);
+  }
+
+  /**
+   * Test solving a game that has not started. Throws IllegalStateException.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testSolveNotStarted() {
+    new FreecellSolver().solve((FreecellModel) FreecellModel.getBuilder().<Card>build());
+  }
+
+  /**
+   * Test solving a game that has not started with the parallel solver. Throws
+   * IllegalStateException.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testParallelSolveNotStarted() {
+    try (ParallelFreecellSolver solver = new ParallelFreecellSolver(1,
+            FreecellSolver.DEFAULT_MAX_NODES, FreecellSolver.DEFAULT_MAX_DEPTH,
+            FreecellSolver.DEFAULT_WEIGHT)) {
+      solver.solve((FreecellModel) FreecellModel.getBuilder().<Card>build());
+    }
+  }
+
+  /**
+   * Test a solver with a limit of 0. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidLimit() {
+    new FreecellSolver(0, 500, 1);
+  }
+}
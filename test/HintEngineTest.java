@@ -0,0 +1,176 @@
+import org.junit.Test;
+
+import java.time.Duration;
+
+import freecell.controller.HintEngine;
+import freecell.model.Card;
+import freecell.model.FreecellModel;
+import freecell.model.Moves;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Test class for the hint engine.
+ */
+public class HintEngineTest {
+
+  /**
+   * Time limit no search of the deals tested comes near, so that every search ends with a proven
+   * result and the counters do not depend on the speed of the machine.
+   */
+  private static final Duration NO_LIMIT = Duration.ofMinutes(10);
+
+  /**
+   * Play a packed move on a model.
+   *
+   * @param model the model
+   * @param move  the packed move
+   */
+  private static void play(FreecellModel model, long move) {
+    model.move(Moves.sourceType(move), Moves.sourcePile(move), Moves.cardIndex(move),
+            Moves.destinationType(move), Moves.destinationPile(move));
+  }
+
+  /**
+   * Test that following the hints wins the game, and that asking again in the same position is
+   * answered from the cache.
+   */
+  @Test
+  public void testFollowHints() {
+    HintEngine engine = new HintEngine(HintEngine.DEFAULT_CAPACITY, NO_LIMIT);
+    FreecellModel model = Deals.deal(1);
+    long first = engine.hint(model);
+    assertEquals(1, engine.getMisses());
+    assertEquals(1, engine.size());
+    assertEquals(first, engine.hint(model));
+    assertEquals(first, engine.hint(Deals.deal(1)));
+    assertEquals(2, engine.getHits());
+    assertEquals(1, engine.getMisses());
+
+    int moves = 0;
+    while (!model.isGameOver() && moves < 500) {
+      long move = engine.hint(model);
+      assertNotEquals(Moves.NONE, move);
+      play(model, move);
+      moves++;
+    }
+    assertEquals(true, model.isGameOver());
+    assertEquals(Moves.NONE, engine.hint(model));
+  }
+
+  /**
+   * Test that a player following the hints is answered from the line of the first search, and
+   * that leaving the line starts a new search.
+   */
+  @Test
+  public void testReuseLine() {
+    HintEngine engine = new HintEngine(HintEngine.DEFAULT_CAPACITY, NO_LIMIT);
+    FreecellModel model = Deals.deal(2);
+    play(model, engine.hint(model));
+    play(model, engine.hint(model));
+    play(model, engine.hint(model));
+    assertEquals(1, engine.getMisses());
+    assertEquals(2, engine.getReuses());
+
+    model.undo();
+    model.undo();
+    long[] buffer = new long[model.getMaxMoves()];
+    int count = model.generateMoves(buffer);
+    long hinted = engine.hint(model);
+    assertEquals(1, engine.getHits());
+    for (int i = 0; i < count; i++) {
+      if (buffer[i] != hinted) {
+        play(model, buffer[i]);
+        break;
+      }
+    }
+    engine.hint(model);
+    assertEquals(2, engine.getMisses());
+    assertEquals(2, engine.getReuses());
+  }
+
+  /**
+   * Test that the least recently used position is evicted once the cache is full.
+   */
+  @Test
+  public void testEviction() {
+    HintEngine engine = new HintEngine(2, NO_LIMIT);
+    FreecellModel one = Deals.deal(1);
+    FreecellModel two = Deals.deal(2);
+    FreecellModel three = Deals.deal(3);
+    engine.hint(one);
+    engine.hint(two);
+    engine.hint(one);
+    engine.hint(three);
+    assertEquals(2, engine.size());
+    engine.hint(one);
+    assertEquals(2, engine.getHits());
+    engine.hint(two);
+    assertEquals(2, engine.getHits());
+    assertEquals(4, engine.getMisses());
+
+    engine.clear();
+    assertEquals(0, engine.size());
+    assertEquals(0, engine.getHits());
+    assertEquals(0, engine.getMisses());
+  }
+
+  /**
+   * Test that the hint of a search stopped by its time limit is neither cached nor kept as a
+   * line to follow.
+   */
+  @Test
+  public void testTimedOutNotCached() {
+    HintEngine engine = new HintEngine(16, Duration.ZERO);
+    FreecellModel model = Deals.deal(1);
+    engine.hint(model);
+    engine.hint(model);
+    assertEquals(2, engine.getMisses());
+    assertEquals(0, engine.getHits());
+    assertEquals(0, engine.size());
+  }
+
+  /**
+   * Test asking for a hint for a model of other rules than the first one. Throws
+   * IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testOtherRules() {
+    HintEngine engine = new HintEngine();
+    engine.hint(Deals.deal(1));
+    FreecellModel single = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    single.startGame(Deals.deal(1).getDeck(), false);
+    engine.hint(single);
+  }
+
+  /**
+   * Test that a cleared engine serves models of other rules.
+   */
+  @Test
+  public void testClearForgetsRules() {
+    HintEngine engine = new HintEngine(16, Duration.ZERO);
+    engine.hint(Deals.deal(1));
+    engine.clear();
+    FreecellModel single = (FreecellModel) FreecellModel.getBuilder().<Card>build();
+    single.startGame(single.getDeck(), false);
+    engine.hint(single);
+    assertEquals(1, engine.getMisses());
+  }
+
+  /**
+   * Test an engine with a capacity of 0. Throws IllegalArgumentException.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new HintEngine(0, HintEngine.DEFAULT_TIME_LIMIT);
+  }
+
+  /**
+   * Test asking for a hint in a game that has not started. Throws IllegalStateException.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testHintNotStarted() {
+    new HintEngine().hint((FreecellModel) FreecellModel.getBuilder().<Card>build());
+  }
+}